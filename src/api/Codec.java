@@ -0,0 +1,36 @@
+/*
+ * @author gautham
+ */
+package api;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+/**
+ * A hand-written encoding of the values of a type, registered with Codecs under a type id.
+ * A codec writes only the state of the value: Codecs writes the type id in front of it.
+ *
+ * @param <V> the type of the values
+ */
+public interface Codec<V> {
+
+	/**
+	 * Writes a value.
+	 *
+	 * @param out the output
+	 * @param value the value, never null
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	void write(ObjectOutput out, V value) throws IOException;
+
+	/**
+	 * Reads a value written by write.
+	 *
+	 * @param in the input
+	 * @return the value
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 * @throws ClassNotFoundException if a nested value is of an unknown class
+	 */
+	V read(ObjectInput in) throws IOException, ClassNotFoundException;
+}
@@ -0,0 +1,466 @@
+/*
+ * @author gautham
+ */
+package api;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The registry of the codecs that encode the values carried by tasks and results, such as the return values and the inputs of the successors, by type id.
+ * A value is written as the one-byte id of its type followed by the encoding of its codec. The codecs of the common types are built in:
+ * null, Integer, Long, Double, String, int[], double[] and HashMap, whose keys and values are encoded in turn; the primitive arrays are copied in bulk.
+ * A stream that implements BulkOutput, such as a frame of the NIO transport, carries the large int arrays beside the stream rather than in it,
+ * and the reader gets them back as views of what it has read, without copying them into arrays of its own.
+ * Large int arrays may also be compressed, as described by Compression.
+ * The application registers the codecs of its own types with ids from FIRST_APPLICATION_ID up, in every JVM, before the values are exchanged:
+ * the static initializer of the task class that produces them is the place, since the Space, the Computers and the Client all load a task class before
+ * they see its results. A value of any other type falls back to Java serialization.
+ */
+public final class Codecs {
+
+	/** The type id of null. */
+	public static final int NULL = 0;
+
+	/** The type id of a value that has no codec and is written with Java serialization. */
+	public static final int SERIALIZED = 1;
+
+	/** The type id of Integer. */
+	public static final int INTEGER = 2;
+
+	/** The type id of Long. */
+	public static final int LONG = 3;
+
+	/** The type id of Double. */
+	public static final int DOUBLE = 4;
+
+	/** The type id of String. */
+	public static final int STRING = 5;
+
+	/** The type id of int[]. */
+	public static final int INT_ARRAY = 6;
+
+	/** The type id of double[]. */
+	public static final int DOUBLE_ARRAY = 7;
+
+	/** The type id of HashMap. */
+	public static final int HASH_MAP = 8;
+
+	/** The first type id available to the application. */
+	public static final int FIRST_APPLICATION_ID = 32;
+
+	/** The largest type id, so that an id fits in a byte. */
+	public static final int MAX_ID = 255;
+
+	/** The byte order of the primitive arrays: that of the x86 hosts of the cluster, so that they are copied without swapping bytes. */
+	public static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+	/** The size in bytes from which an int array is handed to a BulkOutput rather than written into the stream. */
+	public static final int BULK_THRESHOLD = 16 * 1024;
+
+	/**
+	 * An output that can carry large int arrays beside the stream, so that they are copied once, straight into the buffers that go to the socket.
+	 */
+	public interface BulkOutput {
+
+		/**
+		 * Carries the remaining ints of a buffer beside the stream; they are read back, in the same order, by BulkInput.readInts.
+		 *
+		 * @param values the ints, which are not consumed
+		 * @throws IOException Signals that an I/O exception has occurred.
+		 */
+		void writeInts(IntBuffer values) throws IOException;
+	}
+
+	/**
+	 * An output whose compression of int arrays has been agreed on with the end that reads it; other outputs use Compression.getDefault.
+	 */
+	public interface CompressingOutput {
+
+		/**
+		 * Gets the compression of the int arrays.
+		 *
+		 * @return the compression
+		 */
+		int getCompression();
+	}
+
+	/**
+	 * The input that reads what a BulkOutput carried beside the stream.
+	 */
+	public interface BulkInput {
+
+		/**
+		 * Reads the next ints that were carried beside the stream.
+		 *
+		 * @param count the number of ints
+		 * @return a view of the ints
+		 * @throws IOException Signals that an I/O exception has occurred.
+		 */
+		IntBuffer readInts(int count) throws IOException;
+	}
+
+	/** The encoding of an int array whose ints are written in the stream as they are. The encodings are written in the byte that precedes the ints. */
+	private static final int INTS_INLINE = 0;
+
+	/** The encoding of an int array whose ints are carried beside the stream. */
+	private static final int INTS_BULK = 1;
+
+	/** The encoding of an int array compressed with Compression.DELTA_VARINT. */
+	private static final int INTS_DELTA_VARINT = 2;
+
+	/** The encoding of an int array compressed with Compression.DEFLATE. */
+	private static final int INTS_DEFLATE = 3;
+
+	/** The codecs by type id. */
+	private static final Map<Integer, Codec<?>> codecsById = new ConcurrentHashMap<Integer, Codec<?>>();
+
+	/** The type ids by class. */
+	private static final Map<Class<?>, Integer> idsByClass = new ConcurrentHashMap<Class<?>, Integer>();
+
+	static {
+		registerBuiltIn(INTEGER, Integer.class, new Codec<Integer>() {
+			@Override
+			public void write(ObjectOutput out, Integer value) throws IOException {
+				out.writeInt(value);
+			}
+
+			@Override
+			public Integer read(ObjectInput in) throws IOException {
+				return in.readInt();
+			}
+		});
+		registerBuiltIn(LONG, Long.class, new Codec<Long>() {
+			@Override
+			public void write(ObjectOutput out, Long value) throws IOException {
+				out.writeLong(value);
+			}
+
+			@Override
+			public Long read(ObjectInput in) throws IOException {
+				return in.readLong();
+			}
+		});
+		registerBuiltIn(DOUBLE, Double.class, new Codec<Double>() {
+			@Override
+			public void write(ObjectOutput out, Double value) throws IOException {
+				out.writeDouble(value);
+			}
+
+			@Override
+			public Double read(ObjectInput in) throws IOException {
+				return in.readDouble();
+			}
+		});
+		registerBuiltIn(STRING, String.class, new Codec<String>() {
+			@Override
+			public void write(ObjectOutput out, String value) throws IOException {
+				out.writeUTF(value);
+			}
+
+			@Override
+			public String read(ObjectInput in) throws IOException {
+				return in.readUTF();
+			}
+		});
+		registerBuiltIn(INT_ARRAY, int[].class, new Codec<int[]>() {
+			@Override
+			public void write(ObjectOutput out, int[] value) throws IOException {
+				writeIntArray(out, value);
+			}
+
+			@Override
+			public int[] read(ObjectInput in) throws IOException {
+				return readIntArray(in);
+			}
+		});
+		registerBuiltIn(DOUBLE_ARRAY, double[].class, new Codec<double[]>() {
+			@Override
+			public void write(ObjectOutput out, double[] value) throws IOException {
+				writeDoubleArray(out, value);
+			}
+
+			@Override
+			public double[] read(ObjectInput in) throws IOException {
+				return readDoubleArray(in);
+			}
+		});
+		registerBuiltIn(HASH_MAP, HashMap.class, new Codec<HashMap<Object, Object>>() {
+			@Override
+			public void write(ObjectOutput out, HashMap<Object, Object> value) throws IOException {
+				out.writeInt(value.size());
+				for(Map.Entry<Object, Object> entry : value.entrySet()){
+					writeValue(out, entry.getKey());
+					writeValue(out, entry.getValue());
+				}
+			}
+
+			@Override
+			public HashMap<Object, Object> read(ObjectInput in) throws IOException, ClassNotFoundException {
+				int size = in.readInt();
+				HashMap<Object, Object> map = new HashMap<Object, Object>(Math.max(1, size * 4 / 3 + 1));
+				for(int i = 0; i < size; i++){
+					Object key = readValue(in);
+					map.put(key, readValue(in));
+				}
+				return map;
+			}
+		});
+	}
+
+	/**
+	 * Instantiates a new codecs.
+	 */
+	private Codecs() {
+	}
+
+	/**
+	 * Registers the codec of an application type. Registering the same codec class for the same type and id again has no effect.
+	 *
+	 * @param <V> the type
+	 * @param typeId the type id, from FIRST_APPLICATION_ID to MAX_ID
+	 * @param type the class of the values; subclasses are not covered
+	 * @param codec the codec
+	 * @throws IllegalArgumentException if the id is out of range or taken by another type
+	 */
+	public static synchronized <V> void register(int typeId, Class<V> type, Codec<? super V> codec) {
+		if(typeId < FIRST_APPLICATION_ID || typeId > MAX_ID){
+			throw new IllegalArgumentException("Type id out of range: " + typeId);
+		}
+		Integer existing = idsByClass.get(type);
+		Codec<?> taken = codecsById.get(typeId);
+		if(existing != null && existing == typeId && taken.getClass() == codec.getClass()){
+			return;
+		}
+		if(existing != null || taken != null){
+			throw new IllegalArgumentException("Type id " + typeId + " or " + type.getName() + " is already registered");
+		}
+		registerBuiltIn(typeId, type, codec);
+	}
+
+	/**
+	 * Registers a codec without checking its id.
+	 *
+	 * @param typeId the type id
+	 * @param type the class of the values
+	 * @param codec the codec
+	 */
+	private static void registerBuiltIn(int typeId, Class<?> type, Codec<?> codec) {
+		codecsById.put(typeId, codec);
+		idsByClass.put(type, typeId);
+	}
+
+	/**
+	 * Writes a value with the codec of its type, or with Java serialization if its type has none.
+	 *
+	 * @param out the output
+	 * @param value the value, or null
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	@SuppressWarnings("unchecked")
+	public static void writeValue(ObjectOutput out, Object value) throws IOException {
+		if(value == null){
+			out.writeByte(NULL);
+			return;
+		}
+		Integer typeId = idsByClass.get(value.getClass());
+		if(typeId == null){
+			out.writeByte(SERIALIZED);
+			out.writeObject(value);
+			return;
+		}
+		out.writeByte(typeId);
+		((Codec<Object>) codecsById.get(typeId)).write(out, value);
+	}
+
+	/**
+	 * Reads a value written by writeValue.
+	 *
+	 * @param <V> the type of the value
+	 * @param in the input
+	 * @return the value, or null
+	 * @throws IOException Signals that an I/O exception has occurred, or the type id is unknown in this JVM.
+	 * @throws ClassNotFoundException if a serialized value is of an unknown class
+	 */
+	@SuppressWarnings("unchecked")
+	public static <V> V readValue(ObjectInput in) throws IOException, ClassNotFoundException {
+		int typeId = in.readUnsignedByte();
+		if(typeId == NULL){
+			return null;
+		}
+		if(typeId == SERIALIZED){
+			return (V) in.readObject();
+		}
+		Codec<?> codec = codecsById.get(typeId);
+		if(codec == null){
+			throw new IOException("No codec registered for type id " + typeId);
+		}
+		return (V) codec.read(in);
+	}
+
+	/**
+	 * Writes an int array, or null, in bulk.
+	 *
+	 * @param out the output
+	 * @param array the array, or null
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public static void writeIntArray(ObjectOutput out, int[] array) throws IOException {
+		writeInts(out, array == null ? null : IntBuffer.wrap(array));
+	}
+
+	/**
+	 * Reads an int array written by writeIntArray or writeInts.
+	 *
+	 * @param in the input
+	 * @return the array, or null
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public static int[] readIntArray(ObjectInput in) throws IOException {
+		IntBuffer values = readInts(in);
+		if(values == null){
+			return null;
+		}
+		int[] array = new int[values.remaining()];
+		values.get(array);
+		return array;
+	}
+
+	/**
+	 * Writes the remaining ints of a buffer, or null, in bulk: compressed if the output has a compression and they compress well,
+	 * otherwise beside the stream if it is a BulkOutput and they take up at least BULK_THRESHOLD bytes, and in the stream as they are otherwise.
+	 *
+	 * @param out the output
+	 * @param values the ints, which are not consumed, or null
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public static void writeInts(ObjectOutput out, IntBuffer values) throws IOException {
+		if(values == null){
+			out.writeInt(-1);
+			return;
+		}
+		int length = values.remaining();
+		out.writeInt(length);
+		int compression = out instanceof CompressingOutput ? ((CompressingOutput) out).getCompression() : Compression.getDefault();
+		if(compression != Compression.NONE){
+			byte[] encoded = Compression.encode(compression, values);
+			if(encoded != null){
+				out.writeByte(compression == Compression.DEFLATE ? INTS_DEFLATE : INTS_DELTA_VARINT);
+				out.writeInt(encoded.length);
+				out.write(encoded);
+				return;
+			}
+		}
+		boolean bulk = out instanceof BulkOutput && length * 4 >= BULK_THRESHOLD;
+		out.writeByte(bulk ? INTS_BULK : INTS_INLINE);
+		if(bulk){
+			((BulkOutput) out).writeInts(values);
+			return;
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(length * 4).order(BYTE_ORDER);
+		buffer.asIntBuffer().put(values.duplicate());
+		out.write(buffer.array());
+	}
+
+	/**
+	 * Reads ints written by writeInts or writeIntArray; unless they were compressed, they come as a view of the bytes that were read rather than as an array.
+	 *
+	 * @param in the input
+	 * @return a view of the ints, or null
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public static IntBuffer readInts(ObjectInput in) throws IOException {
+		int length = in.readInt();
+		if(length < 0){
+			return null;
+		}
+		int encoding = in.readUnsignedByte();
+		if(encoding == INTS_DELTA_VARINT || encoding == INTS_DEFLATE){
+			byte[] encoded = new byte[in.readInt()];
+			in.readFully(encoded);
+			return Compression.decode(encoding == INTS_DEFLATE ? Compression.DEFLATE : Compression.DELTA_VARINT, encoded, length);
+		}
+		if(encoding == INTS_BULK){
+			if(!(in instanceof BulkInput)){
+				throw new StreamCorruptedException("ints carried beside a stream that has none");
+			}
+			return ((BulkInput) in).readInts(length);
+		}
+		if(encoding != INTS_INLINE){
+			throw new StreamCorruptedException("unknown encoding of ints " + encoding);
+		}
+		byte[] bytes = new byte[length * 4];
+		in.readFully(bytes);
+		return ByteBuffer.wrap(bytes).order(BYTE_ORDER).asIntBuffer();
+	}
+
+	/**
+	 * Writes a double array, or null, in bulk.
+	 *
+	 * @param out the output
+	 * @param array the array, or null
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public static void writeDoubleArray(ObjectOutput out, double[] array) throws IOException {
+		if(array == null){
+			out.writeInt(-1);
+			return;
+		}
+		out.writeInt(array.length);
+		ByteBuffer buffer = ByteBuffer.allocate(array.length * 8).order(BYTE_ORDER);
+		buffer.asDoubleBuffer().put(array);
+		out.write(buffer.array());
+	}
+
+	/**
+	 * Reads a double array written by writeDoubleArray.
+	 *
+	 * @param in the input
+	 * @return the array, or null
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public static double[] readDoubleArray(ObjectInput in) throws IOException {
+		int length = in.readInt();
+		if(length < 0){
+			return null;
+		}
+		byte[] bytes = new byte[length * 8];
+		in.readFully(bytes);
+		double[] array = new double[length];
+		ByteBuffer.wrap(bytes).order(BYTE_ORDER).asDoubleBuffer().get(array);
+		return array;
+	}
+
+	/**
+	 * Writes a string that may be null.
+	 *
+	 * @param out the output
+	 * @param value the string, or null
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public static void writeString(ObjectOutput out, String value) throws IOException {
+		out.writeBoolean(value != null);
+		if(value != null){
+			out.writeUTF(value);
+		}
+	}
+
+	/**
+	 * Reads a string written by writeString.
+	 *
+	 * @param in the input
+	 * @return the string, or null
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public static String readString(ObjectInput in) throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+}
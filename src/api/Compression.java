@@ -0,0 +1,310 @@
+/*
+ * @author gautham
+ */
+package api;
+
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.IntBuffer;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The compressions of the int arrays carried by tasks and results, such as the k values of a Mandelbrot tile, which have long runs of the iteration limit and smooth gradients.
+ * DELTA_VARINT writes the difference of each int from the one before it, zigzag-encoded, in as few bytes as it needs; DEFLATE deflates that encoding in turn,
+ * which collapses the runs of equal values. An array is only compressed if it takes up THRESHOLD bytes or more, and only sent compressed if that saves a quarter of it.
+ *
+ * The compression of each array is recorded in the encoding that Codecs writes before it, so every JVM reads every compression. The writer chooses: a connection of the NIO transport agrees on it with
+ * the other end when it opens, and an RMI stream, which has no connection to agree on, uses the compression of the JVM, set with -Dcompression=none|varint|deflate.
+ * The arrays, bytes and time spent on each compression are counted per JVM, and printed with report; the arrays that were compressed but sent as they are, for want of savings, are counted apart.
+ */
+public final class Compression {
+
+	/** No compression. */
+	public static final int NONE = 0;
+
+	/** Zigzag-encoded deltas written as varints. */
+	public static final int DELTA_VARINT = 1;
+
+	/** DELTA_VARINT, deflated. */
+	public static final int DEFLATE = 2;
+
+	/** The compressions every JVM can read, as a bit mask of their ids. */
+	public static final int SUPPORTED = (1 << NONE) | (1 << DELTA_VARINT) | (1 << DEFLATE);
+
+	/** The size in bytes from which an int array is compressed. */
+	public static final int THRESHOLD = 4 * 1024;
+
+	/** The names of the compressions, by id, as they are given to -Dcompression. */
+	private static final String[] NAMES = {"none", "varint", "deflate"};
+
+	/** The compression of this JVM. */
+	private static final int DEFAULT = parse(System.getProperty("compression", "none"));
+
+	/** The kinds of counts, as they are labelled in the report: the arrays that were sent compressed, those that were decoded, and those that were compressed but sent as they are. */
+	private static final String[] COUNTS = {"encoded", "decoded", "not sent"};
+
+	/** The counters of each compression, by id and kind of count: the arrays, their bytes before and after, and the nanoseconds spent. */
+	private static final AtomicLongArray counters = new AtomicLongArray(NAMES.length * COUNTS.length * 4);
+
+	/** The deflater of each thread, which is reset rather than reallocated for each array. */
+	private static final ThreadLocal<Deflater> deflaters = new ThreadLocal<Deflater>() {
+		@Override
+		protected Deflater initialValue() {
+			return new Deflater(Deflater.BEST_SPEED);
+		}
+	};
+
+	/** The inflater of each thread. */
+	private static final ThreadLocal<Inflater> inflaters = new ThreadLocal<Inflater>() {
+		@Override
+		protected Inflater initialValue() {
+			return new Inflater();
+		}
+	};
+
+	/**
+	 * Not to be instantiated.
+	 */
+	private Compression() {
+	}
+
+	/**
+	 * Gets the compression of this JVM, which RMI streams use.
+	 *
+	 * @return the compression
+	 */
+	public static int getDefault() {
+		return DEFAULT;
+	}
+
+	/**
+	 * Parses the name of a compression.
+	 *
+	 * @param name none, varint or deflate
+	 * @return the compression
+	 * @throws IllegalArgumentException if the name is not that of a compression
+	 */
+	public static int parse(String name) {
+		for(int id = 0; id < NAMES.length; id++){
+			if(name.equals(NAMES[id])){
+				return id;
+			}
+		}
+		throw new IllegalArgumentException("Unknown compression " + name);
+	}
+
+	/**
+	 * Gets the name of a compression.
+	 *
+	 * @param compression the compression
+	 * @return the name
+	 */
+	public static String getName(int compression) {
+		return NAMES[compression];
+	}
+
+	/**
+	 * Tells whether a compression is among those that an end reads.
+	 *
+	 * @param compression the compression
+	 * @param supported the compressions that the end reads, as a bit mask
+	 * @return true if the end reads it
+	 */
+	public static boolean isSupported(int compression, int supported) {
+		return (supported & (1 << compression)) != 0;
+	}
+
+	/**
+	 * Compresses the remaining ints of a buffer, if they are large enough and compress well enough.
+	 *
+	 * @param compression DELTA_VARINT or DEFLATE
+	 * @param values the ints, which are not consumed
+	 * @return the encoded ints, or null if they are to be sent as they are
+	 */
+	public static byte[] encode(int compression, IntBuffer values) {
+		int rawSize = values.remaining() * 4;
+		if(rawSize < THRESHOLD){
+			return null;
+		}
+		long start = System.nanoTime();
+		byte[] encoded = encodeDeltaVarint(values.duplicate());
+		if(compression == DEFLATE){
+			encoded = deflate(encoded);
+		}
+		boolean sent = encoded.length <= rawSize - rawSize / 4;
+		record(compression, sent ? 0 : 2, rawSize, encoded.length, System.nanoTime() - start);
+		return sent ? encoded : null;
+	}
+
+	/**
+	 * Decompresses ints encoded by encode.
+	 *
+	 * @param compression DELTA_VARINT or DEFLATE
+	 * @param encoded the encoded ints
+	 * @param count the number of ints
+	 * @return the ints
+	 * @throws IOException Signals that the encoding is corrupt.
+	 */
+	public static IntBuffer decode(int compression, byte[] encoded, int count) throws IOException {
+		long start = System.nanoTime();
+		byte[] varints = compression == DEFLATE ? inflate(encoded) : encoded;
+		int[] values = new int[count];
+		int previous = 0, position = 0;
+		for(int i = 0; i < count; i++){
+			int zigzag = 0;
+			for(int shift = 0; ; shift += 7){
+				if(position == varints.length){
+					throw new StreamCorruptedException("varints end before the last int");
+				}
+				byte b = varints[position++];
+				zigzag |= (b & 0x7f) << shift;
+				if(b >= 0){
+					break;
+				}
+			}
+			previous += (zigzag >>> 1) ^ -(zigzag & 1);
+			values[i] = previous;
+		}
+		record(compression, 1, count * 4L, encoded.length, System.nanoTime() - start);
+		return IntBuffer.wrap(values);
+	}
+
+	/**
+	 * Writes the zigzag-encoded delta of each int from the one before it, as a varint.
+	 *
+	 * @param values the ints, which are consumed
+	 * @return the varints
+	 */
+	private static byte[] encodeDeltaVarint(IntBuffer values) {
+		byte[] out = new byte[values.remaining() * 5];
+		int position = 0, previous = 0;
+		while(values.hasRemaining()){
+			int value = values.get();
+			int delta = value - previous;
+			previous = value;
+			int zigzag = (delta << 1) ^ (delta >> 31);
+			while((zigzag & ~0x7f) != 0){
+				out[position++] = (byte) ((zigzag & 0x7f) | 0x80);
+				zigzag >>>= 7;
+			}
+			out[position++] = (byte) zigzag;
+		}
+		byte[] encoded = new byte[position];
+		System.arraycopy(out, 0, encoded, 0, position);
+		return encoded;
+	}
+
+	/**
+	 * Deflates bytes, prefixed by their length so that they can be inflated in one go.
+	 *
+	 * @param bytes the bytes
+	 * @return the length, in four bytes, followed by the deflated bytes
+	 */
+	private static byte[] deflate(byte[] bytes) {
+		Deflater deflater = deflaters.get();
+		deflater.reset();
+		deflater.setInput(bytes);
+		deflater.finish();
+		byte[] out = new byte[4 + bytes.length + bytes.length / 1000 + 64];
+		out[0] = (byte) (bytes.length >>> 24);
+		out[1] = (byte) (bytes.length >>> 16);
+		out[2] = (byte) (bytes.length >>> 8);
+		out[3] = (byte) bytes.length;
+		int length = 4;
+		while(!deflater.finished()){
+			if(length == out.length){
+				byte[] larger = new byte[out.length * 2];
+				System.arraycopy(out, 0, larger, 0, length);
+				out = larger;
+			}
+			length += deflater.deflate(out, length, out.length - length);
+		}
+		byte[] deflated = new byte[length];
+		System.arraycopy(out, 0, deflated, 0, length);
+		return deflated;
+	}
+
+	/**
+	 * Inflates bytes deflated by deflate.
+	 *
+	 * @param deflated the length followed by the deflated bytes
+	 * @return the bytes
+	 * @throws IOException Signals that the deflated bytes are corrupt.
+	 */
+	private static byte[] inflate(byte[] deflated) throws IOException {
+		if(deflated.length < 4){
+			throw new StreamCorruptedException("deflated ints without a length");
+		}
+		int length = ((deflated[0] & 0xff) << 24) | ((deflated[1] & 0xff) << 16) | ((deflated[2] & 0xff) << 8) | (deflated[3] & 0xff);
+		Inflater inflater = inflaters.get();
+		inflater.reset();
+		inflater.setInput(deflated, 4, deflated.length - 4);
+		byte[] bytes = new byte[length];
+		try {
+			int position = 0;
+			while(position < length){
+				int n = inflater.inflate(bytes, position, length - position);
+				if(n == 0 && (inflater.finished() || inflater.needsInput())){
+					throw new StreamCorruptedException("deflated ints end early");
+				}
+				position += n;
+			}
+		} catch (DataFormatException e) {
+			throw new StreamCorruptedException(e.getMessage());
+		}
+		return bytes;
+	}
+
+	/**
+	 * Counts an array that was encoded or decoded.
+	 *
+	 * @param compression the compression
+	 * @param count the kind of count, an index into COUNTS
+	 * @param rawSize the size of the ints in bytes
+	 * @param encodedSize the size of the encoding in bytes
+	 * @param nanos the time it took
+	 */
+	private static void record(int compression, int count, long rawSize, long encodedSize, long nanos) {
+		int base = (compression * COUNTS.length + count) * 4;
+		counters.incrementAndGet(base);
+		counters.addAndGet(base + 1, rawSize);
+		counters.addAndGet(base + 2, encodedSize);
+		counters.addAndGet(base + 3, nanos);
+	}
+
+	/**
+	 * Describes the arrays this JVM has compressed and decompressed since the last reset, one compression to a line, or returns null if there were none.
+	 * The ratio and rate show the trade-off between the bandwidth a compression saves and the time it costs.
+	 *
+	 * @return the report, or null
+	 */
+	public static String report() {
+		StringBuilder report = new StringBuilder();
+		for(int compression = 0; compression < NAMES.length; compression++){
+			for(int count = 0; count < COUNTS.length; count++){
+				int base = (compression * COUNTS.length + count) * 4;
+				long arrays = counters.get(base);
+				if(arrays == 0){
+					continue;
+				}
+				long raw = counters.get(base + 1), encoded = counters.get(base + 2), nanos = counters.get(base + 3);
+				report.append(String.format("Compression %s %s: %d arrays, %.1f MB -> %.1f MB (%.1f%%), %.1f ms, %.0f MB/s%n",
+						NAMES[compression], COUNTS[count], arrays, raw / 1e6, encoded / 1e6, 100.0 * encoded / raw,
+						nanos / 1e6, raw / 1e6 / (nanos / 1e9)));
+			}
+		}
+		return report.length() == 0 ? null : report.toString().trim();
+	}
+
+	/**
+	 * Resets the counters.
+	 */
+	public static void reset() {
+		for(int i = 0; i < counters.length(); i++){
+			counters.set(i, 0);
+		}
+	}
+}
@@ -3,16 +3,20 @@
  */
 package api;
 
-import java.io.Serializable;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 
 /**
  * The class represents the Result objects of the Tasks that are executed in the Compute Space.
  * Each Task in the ComputeSpace is turned into a result by one of the Compute Servers.
  * Results of the executed Tasks are read from the Compute Space by the respective Jobs and combined into an overall result for the Client.
+ * A result is written in a compact form of its own: the return value is encoded by the codec registered with Codecs for its type.
  *
  * @param <T> A task execute method's return value of type T.
  */
-public class Result<T> implements Serializable{
+public class Result<T> implements Externalizable{
 		
 	/** The Constant serialVersionUID. */
 	private static final long serialVersionUID = 1L;
@@ -20,6 +24,9 @@ public class Result<T> implements Serializable{
 	/** The return value. */
 	private T returnValue;
 	
+	/** The key of the stream to which the Space hands this result as a partial result, or null if the result only goes to the successor. */
+	private String streamKey;
+	
 	/**
 	 * Gets the task return value.
 	 *
@@ -38,5 +45,41 @@ public class Result<T> implements Serializable{
 		this.returnValue = returnValue;
 	}
 	
+	/**
+	 * Gets the key of the stream to which the Space hands this result as a partial result.
+	 *
+	 * @return the stream key, or null
+	 */
+	public String getStreamKey(){
+		return this.streamKey;
+	}
 	
+	/**
+	 * Sets the key of the stream to which the Space hands this result as a partial result.
+	 * A result with a stream key and a return value is taken out of the tree as soon as it reaches the Space: the Client gets it from Space.takePartials,
+	 * and the successor gets an empty result in its place.
+	 *
+	 * @param streamKey the stream key, or null
+	 */
+	public void setStreamKey(String streamKey){
+		this.streamKey = streamKey;
+	}
+	
+	/* (non-Javadoc)
+	 * @see java.io.Externalizable#writeExternal(java.io.ObjectOutput)
+	 */
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		Codecs.writeString(out, this.streamKey);
+		Codecs.writeValue(out, this.returnValue);
+	}
+	
+	/* (non-Javadoc)
+	 * @see java.io.Externalizable#readExternal(java.io.ObjectInput)
+	 */
+	@Override
+	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+		this.streamKey = Codecs.readString(in);
+		this.returnValue = Codecs.readValue(in);
+	}
 }
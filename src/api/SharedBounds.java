@@ -0,0 +1,152 @@
+/*
+ * @author gautham
+ */
+package api;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The best known upper bounds of the branch-and-bound jobs, such as the cost of the shortest TSP tour found so far.
+ * Unlike the shared data, a bound changes while the job runs: a task that finds a better solution offers it here, the offer is published to the Space,
+ * and the Space broadcasts it to every Computer so that the tasks that run afterwards prune against it.
+ * Bounds are keyed like the shared data of the job and are evicted along with it.
+ */
+public final class SharedBounds {
+
+	/** The bounds known to this JVM. */
+	private static final Map<String, Double> bounds = new ConcurrentHashMap<String, Double>();
+
+	/** The channel through which the bounds are fetched from and published to the Space. */
+	private static volatile Channel channel;
+
+	/**
+	 * Instantiates a new shared bounds.
+	 */
+	private SharedBounds() {
+	}
+
+	/**
+	 * Gets the best known upper bound for the given key, fetching it with the channel the first time.
+	 *
+	 * @param key the key
+	 * @return the bound, or Double.MAX_VALUE if no bound is known yet
+	 */
+	public static double get(String key) {
+		Double bound = bounds.get(key);
+		if(bound == null){
+			double fetched = Double.MAX_VALUE;
+			Channel currentChannel = channel;
+			if(currentChannel != null){
+				try {
+					fetched = currentChannel.fetch(key);
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+			}
+			lower(key, fetched);
+			bound = bounds.get(key);
+		}
+		return bound;
+	}
+
+	/**
+	 * Offers a new upper bound found by a task on this JVM. If it improves on the known bound, it is published through the channel.
+	 *
+	 * @param key the key
+	 * @param bound the bound
+	 * @return true, if the bound improved on the known one
+	 */
+	public static boolean offer(String key, double bound) {
+		if(! lower(key, bound)){
+			return false;
+		}
+		Channel currentChannel = channel;
+		if(currentChannel != null){
+			try {
+				currentChannel.publish(key, bound);
+			} catch (Exception e) {
+				// The bound still prunes the tasks of this JVM.
+				e.printStackTrace();
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Accepts a bound broadcast by the Space, without publishing it again.
+	 *
+	 * @param key the key
+	 * @param bound the bound
+	 * @return true, if the bound improved on the known one
+	 */
+	public static boolean accept(String key, double bound) {
+		return lower(key, bound);
+	}
+
+	/**
+	 * Lowers the bound for the given key to the given value, if it is lower.
+	 *
+	 * @param key the key
+	 * @param bound the bound
+	 * @return true, if the bound was lowered
+	 */
+	private static boolean lower(String key, double bound) {
+		while(true){
+			Double current = bounds.get(key);
+			if(current == null){
+				if(bounds.putIfAbsent(key, bound) == null){
+					return true;
+				}
+			}
+			else if(bound >= current){
+				return false;
+			}
+			else if(bounds.replace(key, current, bound)){
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Evicts the bound of a completed job.
+	 *
+	 * @param key the key
+	 */
+	public static void evict(String key) {
+		bounds.remove(key);
+	}
+
+	/**
+	 * Sets the channel through which the bounds are fetched from and published to the Space.
+	 *
+	 * @param newChannel the channel
+	 */
+	public static void setChannel(Channel newChannel) {
+		channel = newChannel;
+	}
+
+	/**
+	 * Connects the bounds of a JVM with the Space.
+	 */
+	public interface Channel {
+
+		/**
+		 * Fetches the best bound known for the given key.
+		 *
+		 * @param key the key
+		 * @return the bound, or Double.MAX_VALUE if there is none
+		 * @throws Exception the exception
+		 */
+		double fetch(String key) throws Exception;
+
+		/**
+		 * Publishes a bound found on this JVM.
+		 *
+		 * @param key the key
+		 * @param bound the bound
+		 * @throws Exception the exception
+		 */
+		void publish(String key, double bound) throws Exception;
+	}
+}
@@ -0,0 +1,114 @@
+/*
+ * @author gautham
+ */
+package api;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A cache of immutable, job-scoped data such as the cities of a TSP job.
+ * The Client registers the data with the Space once per job under a key, and the tasks carry only the key.
+ * Every JVM fetches an entry the first time one of its tasks asks for it and keeps it until the Space evicts it at the end of the job.
+ */
+public final class SharedData {
+
+	/** The cached entries. */
+	private static final Map<String, Object> cache = new ConcurrentHashMap<String, Object>();
+
+	/** The keys that have been evicted, so that a load still in flight at eviction doesn't cache its entry again. Keys are unique per job, so one small entry per finished job is kept. */
+	private static final Set<String> evicted = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+	/** The loader that fetches the entries missing from the cache. */
+	private static volatile Loader loader;
+
+	/**
+	 * Instantiates a new shared data.
+	 */
+	private SharedData() {
+	}
+
+	/**
+	 * Gets the entry for the given key, fetching it with the loader if it isn't cached yet.
+	 * An entry loaded for a key that is evicted meanwhile is returned to the caller but not cached.
+	 *
+	 * @param <V> the type of the entry
+	 * @param key the key
+	 * @return the entry
+	 * @throws IllegalStateException if the entry is neither cached nor can be loaded
+	 */
+	@SuppressWarnings("unchecked")
+	public static <V> V get(String key) {
+		Object value = cache.get(key);
+		if(value == null){
+			Loader currentLoader = loader;
+			if(currentLoader == null){
+				throw new IllegalStateException("No shared data for key " + key);
+			}
+			try {
+				value = currentLoader.load(key);
+			} catch (Exception e) {
+				throw new IllegalStateException("Could not load the shared data for key " + key, e);
+			}
+			if(value == null){
+				throw new IllegalStateException("No shared data for key " + key);
+			}
+			Object cached = cache.putIfAbsent(key, value);
+			if(cached != null){
+				value = cached;
+			}
+			// Evict adds the key before removing the entry, so either this check sees the key or the removal sees the entry.
+			if(evicted.contains(key)){
+				cache.remove(key, value);
+			}
+		}
+		return (V) value;
+	}
+
+	/**
+	 * Caches an entry.
+	 *
+	 * @param key the key
+	 * @param value the value
+	 */
+	public static void put(String key, Object value) {
+		evicted.remove(key);
+		cache.put(key, value);
+	}
+
+	/**
+	 * Evicts an entry from the cache.
+	 *
+	 * @param key the key
+	 */
+	public static void evict(String key) {
+		evicted.add(key);
+		cache.remove(key);
+	}
+
+	/**
+	 * Sets the loader that fetches the entries missing from the cache.
+	 *
+	 * @param newLoader the loader
+	 */
+	public static void setLoader(Loader newLoader) {
+		loader = newLoader;
+	}
+
+	/**
+	 * Fetches an entry that is missing from the cache, e.g. from the Space.
+	 */
+	public interface Loader {
+
+		/**
+		 * Loads the entry for the given key.
+		 *
+		 * @param key the key
+		 * @return the entry, or null if there is none
+		 * @throws Exception the exception
+		 */
+		Object load(String key) throws Exception;
+	}
+}
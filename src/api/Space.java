@@ -3,8 +3,10 @@
  */
 package api;
 
+import java.io.Serializable;
 import java.rmi.Remote;
 import java.rmi.RemoteException;
+import java.util.List;
 
 /**
  * The remote interface through which different tasks are submitted and results obtained.
@@ -17,8 +19,12 @@ public interface Space extends Remote {
 	/** The name under which the RMI registry binds the remote reference. */
 	public static final String SERVICE_NAME = "Space";
 	
+	/** The job of the tasks that are put without a job id. */
+	public static final String DEFAULT_JOB = "default";
+	
 	/**
-	 * A remote method used by the Clients to put the Task into the ComputeSpace.
+	 * A remote method used by the Clients to put the Task into the ComputeSpace, as a root task of DEFAULT_JOB.
+	 * Clients that share the Space should put their tasks under jobs of their own instead, or they may take each other's results.
 	 *
 	 * @param <T> the generic type
 	 * @param task the actual task
@@ -28,7 +34,19 @@ public interface Space extends Remote {
 	
 	
 	/**
-	 * A remote method to take the Result that has been computed by the ComputeServers. This method blocks until a Result is available to return to the client
+	 * A remote method used by the Clients to put a root task of a job into the ComputeSpace. The final result of the task is routed to the job,
+	 * so the tasks of several jobs can be in the Space at once, each job taking only its own results.
+	 *
+	 * @param <T> the generic type
+	 * @param jobId the id of the job, unique to the Client that runs it
+	 * @param task the actual task
+	 * @throws RemoteException the remote exception
+	 */
+	<T> void put( String jobId, Task<T> task ) throws RemoteException;
+	
+	
+	/**
+	 * A remote method to take a Result of DEFAULT_JOB that has been computed by the ComputeServers. This method blocks until a Result is available to return to the client
 	 *
 	 * @param <T> the generic type
 	 * @return result
@@ -38,6 +56,72 @@ public interface Space extends Remote {
 	<T> Result<T> take() throws RemoteException, InterruptedException;
 	
 	
+	/**
+	 * A remote method to take the final Result of one of the root tasks put under a job. This method blocks until such a Result is available;
+	 * the results of the root tasks of a job are taken in the order in which they complete.
+	 *
+	 * @param <T> the generic type
+	 * @param jobId the id of the job
+	 * @return result
+	 * @throws RemoteException the remote exception
+	 * @throws InterruptedException the interrupted exception
+	 */
+	<T> Result<T> take( String jobId ) throws RemoteException, InterruptedException;
+	
+	
+	/**
+	 * A remote method to take the partial results of a job that streams them, such as the tiles of a MandelbrotSetJob, in the order in which they reach the Space.
+	 * This method blocks until at least one partial result is available, and then returns all the available ones. The final result of the job is still taken with take.
+	 *
+	 * @param <T> the generic type
+	 * @param streamKey the key of the stream, set on the results by the tasks of the job
+	 * @return the partial results
+	 * @throws RemoteException the remote exception
+	 * @throws InterruptedException the interrupted exception
+	 */
+	<T> List<Result<T>> takePartials(String streamKey) throws RemoteException, InterruptedException;
+	
+	
+	/**
+	 * Discards the stream of partial results of a job once the job has completed.
+	 *
+	 * @param streamKey the key of the stream
+	 * @throws RemoteException the remote exception
+	 */
+	void closeStream(String streamKey) throws RemoteException;
+	
+	
+	/**
+	 * Registers immutable data that is shared by all the tasks of a job, such as the cities of a TSP job.
+	 * The tasks carry only the key; each Computer fetches the data once and caches it until it is removed.
+	 *
+	 * @param key the key, unique to the job
+	 * @param data the data
+	 * @throws RemoteException the remote exception
+	 */
+	void putSharedData(String key, Serializable data) throws RemoteException;
+	
+	
+	/**
+	 * Removes shared data once the job it belongs to has completed, evicting it from the caches of all the Computers.
+	 *
+	 * @param key the key
+	 * @throws RemoteException the remote exception
+	 */
+	void removeSharedData(String key) throws RemoteException;
+	
+	
+	/**
+	 * Lowers the upper bound of a branch-and-bound job, such as the cost of a known TSP tour, and broadcasts it to all the Computers.
+	 * A bound that is not lower than the known one is ignored, and so is a bound for a key that has no shared data, such as that of a job that has completed.
+	 *
+	 * @param key the key of the job, the same as the key of its shared data
+	 * @param bound the bound
+	 * @throws RemoteException the remote exception
+	 */
+	void updateUpperBound(String key, double bound) throws RemoteException;
+	
+	
 	/**
 	 * A remote method to stop the execution of the ComputeSpace.
 	 *
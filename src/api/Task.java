@@ -4,13 +4,22 @@
 
 package api;
 
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutput;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.util.Arrays;
 import java.util.List;
 
 /**
  * An abstract class that acts as a link between the Computer implementation and the work that it needs to do, providing the way to start the work.
  * The client decomposes the original problem into a set of Task objects and they therefore represent the unit of work that is to be done by the Computers.  
  * This class defines both the child tasks and the successor tasks.
+ * The fields of this class are written in a compact form by writeTask, rather than described field by field in every stream.
+ * A task type may implement Externalizable to replace Java serialization with a compact encoding of its own: it writes the fields of this class with writeTask,
+ * followed by its own fields, and needs a public constructor without arguments.
  * @param <T> a type parameter, T, which represents the result type of the task's computation.
  */
 public abstract class Task<T> implements Serializable{
@@ -19,36 +28,42 @@ public abstract class Task<T> implements Serializable{
 	private static final long serialVersionUID = 1L;
 
 	/** The task id. */
-	protected Object taskId;
+	protected transient long taskId;
 	
 	/** The argument number for the successor task. */
-	protected int argNo;
+	protected transient int argNo;
 	
 	/** The task type that differentiates between a child task and a successor task. */
-	protected int taskType;
+	protected transient int taskType;
 	
 	/** The join counter that denotes the number of arguments that the successor task accepts. */
-	protected int joinCounter;
+	protected transient int joinCounter;
 	
-	/** The successor task id. */
-	protected Object successorTaskId;
+	/** The successor task id; for the root task, the sink of its job in the Space. */
+	protected transient long successorTaskId = TaskIdGenerator.NO_TASK;
 	
-	/** The input list that the successor is waiting for. */
-	protected Task<T>[] inputList;
+	/** The input list that the successor is waiting for: the return values of its sub-tasks, indexed by their argument number. */
+	protected transient Object[] inputList;
 	
 	/** The result of execution of the task. */
-	protected Result<T> result;
+	protected transient Result<T> result;
 	
 	/** The time taken to run the task on the computer. */
-	protected long elapsedTime;		
+	protected transient long elapsedTime;		
 	
 	
+	/**
+	 * Instantiates a new task whose fields are then read by readTask, for the task types that implement Externalizable.
+	 */
+	protected Task(){
+	}
+	
 	/**
 	 * Instantiates a new task.
 	 *
 	 * @param taskId the task id
 	 */
-	public Task(Object taskId){
+	public Task(long taskId){
 		this.taskId = taskId;
 	}
 	
@@ -58,17 +73,96 @@ public abstract class Task<T> implements Serializable{
 	 * @param taskId the task id
 	 * @param taskType the task type
 	 */
-	public Task(Object taskId, int taskType){
+	public Task(long taskId, int taskType){
 		this.taskId = taskId;
 		this.taskType = taskType;
 	}
 	
+	/**
+	 * Writes the fields of this class, for the writeExternal of a task type that implements Externalizable.
+	 * The inputs and the return value are encoded by the codecs registered with Codecs for their types.
+	 *
+	 * @param out the output
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	protected final void writeTask(ObjectOutput out) throws IOException {
+		out.writeLong(this.taskId);
+		out.writeInt(this.argNo);
+		out.writeInt(this.taskType);
+		out.writeInt(this.joinCounter);
+		out.writeLong(this.successorTaskId);
+		out.writeLong(this.elapsedTime);
+		if(this.inputList == null){
+			out.writeInt(-1);
+		}
+		else{
+			out.writeInt(this.inputList.length);
+			for(Object input : this.inputList){
+				Codecs.writeValue(out, input);
+			}
+		}
+		out.writeBoolean(this.result != null);
+		if(this.result != null){
+			this.result.writeExternal(out);
+		}
+	}
+	
+	/**
+	 * Writes the fields of this class when a task type is written with Java serialization.
+	 *
+	 * @param out the output
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		writeTask(out);
+	}
+	
+	/**
+	 * Reads the fields of this class when a task type is read with Java serialization.
+	 *
+	 * @param in the input
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 * @throws ClassNotFoundException if an input or the return value is of an unknown class
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		readTask(in);
+	}
+	
+	/**
+	 * Reads the fields of this class written by writeTask, for the readExternal of a task type that implements Externalizable.
+	 *
+	 * @param in the input
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 * @throws ClassNotFoundException if an input or the return value is of an unknown class
+	 */
+	protected final void readTask(ObjectInput in) throws IOException, ClassNotFoundException {
+		this.taskId = in.readLong();
+		this.argNo = in.readInt();
+		this.taskType = in.readInt();
+		this.joinCounter = in.readInt();
+		this.successorTaskId = in.readLong();
+		this.elapsedTime = in.readLong();
+		int numInputs = in.readInt();
+		if(numInputs >= 0){
+			this.inputList = new Object[numInputs];
+			for(int i = 0; i < numInputs; i++){
+				this.inputList[i] = Codecs.readValue(in);
+			}
+		}
+		if(in.readBoolean()){
+			this.result = new Result<T>();
+			this.result.readExternal(in);
+		}
+	}
+	
 	/**
 	 * Gets the input list.
 	 *
 	 * @return the input list
 	 */
-	public Task<T>[] getInputList() {
+	public Object[] getInputList() {
 		return this.inputList;
 	}
 
@@ -77,9 +171,29 @@ public abstract class Task<T> implements Serializable{
 	 *
 	 * @param inputList the new input list
 	 */
-	public void setInputList(Task<T>[] inputList) {
+	public void setInputList(Object[] inputList) {
 		this.inputList = inputList;
 	}
+	
+	/**
+	 * Sets the return value of a sub-task as one of the inputs of this successor task.
+	 *
+	 * @param argNo the argument number of the sub-task
+	 * @param value the return value of the sub-task
+	 */
+	public void setInput(int argNo, T value) {
+		this.inputList[argNo] = value;
+	}
+	
+	/**
+	 * Gets the inputs of this successor task.
+	 *
+	 * @return the return values of the sub-tasks, indexed by their argument number
+	 */
+	@SuppressWarnings("unchecked")
+	public List<T> getInputs() {
+		return Arrays.asList((T[]) this.inputList);
+	}
 
 	/**
 	 * Sets the arg no.
@@ -105,7 +219,7 @@ public abstract class Task<T> implements Serializable{
 	 *
 	 * @return the successor task id
 	 */
-	public Object getSuccessorTaskId() {
+	public long getSuccessorTaskId() {
 		return successorTaskId;
 	}
 
@@ -114,7 +228,7 @@ public abstract class Task<T> implements Serializable{
 	 *
 	 * @param successorTaskId the new successor task id
 	 */
-	public void setSuccessorTaskId(Object successorTaskId) {
+	public void setSuccessorTaskId(long successorTaskId) {
 		this.successorTaskId = successorTaskId;
 	}
 
@@ -141,7 +255,7 @@ public abstract class Task<T> implements Serializable{
 	 *
 	 * @return the task id
 	 */
-	public Object getTaskId() {
+	public long getTaskId() {
 		return taskId;
 	}
 
@@ -150,7 +264,7 @@ public abstract class Task<T> implements Serializable{
 	 *
 	 * @param taskId the new task id
 	 */
-	public void setTaskId(Object taskId) {
+	public void setTaskId(long taskId) {
 		this.taskId = taskId;
 	}
 
@@ -231,6 +345,23 @@ public abstract class Task<T> implements Serializable{
 	 */
 	public abstract Task<T> createSuccessorTask();	
 	
+	/**
+	 * Combines the return values of the sub-tasks into the return value of this successor task.
+	 *
+	 * @param inputs the return values of the sub-tasks, indexed by their argument number
+	 * @return the combined value
+	 */
+	public abstract T combine(List<T> inputs);
+	
+	/**
+	 * Checks if combining the inputs of this successor task is so cheap that the Space should do it itself, rather than pay a round trip to a Computer.
+	 *
+	 * @return true, if the combine is cheap
+	 */
+	public boolean isCombineCheap() {
+		return false;
+	}
+	
 	/**
 	 * Executes a given task.
 	 * This method returns the result of the implementing task's computation and thus its return type is T.
@@ -246,4 +377,12 @@ public abstract class Task<T> implements Serializable{
 	 */
 	public abstract boolean isBaseCondition();		
 	
+	/**
+	 * Estimates the amount of work in the sub-tree of the DAG rooted at this task, e.g. the number of nodes or the number of basic operations.
+	 * The estimate only needs to be proportional to the actual running time across tasks of the same class, since the Computer calibrates it against measured execution times.
+	 *
+	 * @return the cost estimate
+	 */
+	public abstract long getCostEstimate();
+	
 }
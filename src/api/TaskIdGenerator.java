@@ -0,0 +1,55 @@
+/*
+ * @author gautham
+ */
+package api;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates the ids of the tasks created in this JVM.
+ * An id is a primitive long whose upper bits hold the id range that the Space assigned to this JVM and whose lower RANGE_BITS bits count the tasks created in it,
+ * so ids are unique across the machines without any coordination beyond registration.
+ */
+public final class TaskIdGenerator {
+
+	/** The id that denotes no task, e.g. the successor of a task that has not been put into the Space yet. */
+	public static final long NO_TASK = 0;
+
+	/** The number of low-order bits available to the tasks of a single range. */
+	public static final int RANGE_BITS = 40;
+
+	/** The next id; ids of range 0 are used until a range is assigned. */
+	private static final AtomicLong nextId = new AtomicLong(1);
+
+	/** Whether a range has been assigned. */
+	private static volatile boolean rangeAssigned;
+
+	/**
+	 * Instantiates a new task id generator.
+	 */
+	private TaskIdGenerator() {
+	}
+
+	/**
+	 * Gets the next task id.
+	 *
+	 * @return the task id
+	 */
+	public static long next() {
+		return nextId.getAndIncrement();
+	}
+
+	/**
+	 * Assigns the id range from which the tasks created in this JVM take their ids. Only the first range is used;
+	 * further Computers in the same JVM share its counter, which keeps their ids unique as well.
+	 *
+	 * @param range the range
+	 */
+	public static synchronized void assignRange(long range) {
+		if(rangeAssigned){
+			return;
+		}
+		nextId.set((range << RANGE_BITS) + 1);
+		rangeAssigned = true;
+	}
+}
@@ -3,17 +3,23 @@
  */
 package client;
 
+import java.awt.GraphicsEnvironment;
+import java.io.File;
+import java.io.IOException;
 import java.net.MalformedURLException;
 import java.rmi.Naming;
 import java.rmi.NotBoundException;
 import java.rmi.RMISecurityManager;
 import java.rmi.RemoteException;
 
+import jobs.DeepZoomMandelbrotJob;
 import jobs.EuclideanTspJob;
 import jobs.FibonacciJob;
 import jobs.Job;
 import jobs.MandelbrotSetJob;
 
+import utils.Constants;
+import api.Compression;
 import api.Space;
 
 /**
@@ -56,17 +62,21 @@ public class Client {
 		
 		switch(operation){
 			case 1:
-				// mJob is an instance of MandelbrotSet Job.
-				Job<int[][]> mJob = new MandelbrotSetJob(new double[] {-0.7510975859375, 0.1315680625}, 0.01611,
-						1024, 512);		
-				int[][] counts = (int[][]) runTask(mJob);
-				Visualizer.visualizeMandelbrotSetTask(counts, 512, 1024);
+				// mJob is an instance of MandelbrotSet Job, whose tiles are painted as they arrive, or written to PNG files without a display.
+				MandelbrotSetJob.TileListener listener = GraphicsEnvironment.isHeadless() ? Visualizer.writeMandelbrotSetTiles(512, new File("mandelbrot-tiles"))
+						: Visualizer.visualizeMandelbrotSetTiles(512, 1024);
+				Job<int[]> mJob = new MandelbrotSetJob(new double[] {-0.7510975859375, 0.1315680625}, 0.01611,
+						1024, 512, Constants.MANDELBROTSET_MODE_TILED, listener);
+				int[] counts = (int[]) runTask(mJob);
+				if(GraphicsEnvironment.isHeadless()){
+					writeImage(counts, 512, 1024, new File("mandelbrot.png"));
+				}
 				break;
 			case 2:
 				double[][] cities = { { 1, 1 }, { 8, 1 }, { 8, 8 }, { 1, 8 }, { 2, 2 },
 						{ 7, 2 }, { 7, 7 }, { 2, 7 }, { 3, 3 }, { 6, 3 }, {6, 6}, {3, 6} };
-				// tspJob is an instance of the EuclideanTsp Job.
-				Job<int[]> tspJob = new EuclideanTspJob(cities);		
+				// tspJob is an instance of the EuclideanTsp Job, searched with branch and bound.
+				Job<int[]> tspJob = new EuclideanTspJob(cities, true);		
 				int[] tour = (int[]) runTask(tspJob);
 				Visualizer.visualizeEuclideanTspTask(tour, cities, 512);
 				break;
@@ -79,6 +89,18 @@ public class Client {
 			case 4:
 				stopExecution();
 				break;
+			case 5:
+				// dzJob is a deep zoom into the Seahorse Valley, far below the resolution of a double.
+				Job<int[]> dzJob = new DeepZoomMandelbrotJob("-0.743643887037158704752191506114774", "0.131825904205311970493132056385139", 1e-20,
+						1024, 20000);
+				int[] dzCounts = (int[]) runTask(dzJob);
+				if(GraphicsEnvironment.isHeadless()){
+					writeImage(dzCounts, 20000, 1024, new File("deepzoom.png"));
+				}
+				else{
+					Visualizer.visualizeMandelbrotSetTask(dzCounts, 20000, 1024);
+				}
+				break;
 			default:
 				throw new IllegalArgumentException("Operation invalid!");
 		}
@@ -99,6 +121,24 @@ public class Client {
 
 	}
 	
+	/**
+	 * Writes the image of a Mandelbrot set job to a PNG file, for Clients that run without a display.
+	 *
+	 * @param counts the counts, as returned by the job
+	 * @param iterLimit the iter limit
+	 * @param numPixels the num pixels
+	 * @param file the file
+	 */
+	private static void writeImage(int[] counts, int iterLimit, int numPixels, File file){
+		try{
+			Visualizer.writeMandelbrotSetImage(counts, iterLimit, numPixels, file);
+			System.out.println("Image written to " + file.getAbsolutePath());
+		}
+		catch(IOException e){
+			e.printStackTrace();
+		}
+	}
+	
 	/**
 	 * Stop execution of the Space which would in turn stop all the registered Compute Servers and then stop itself.
 	 */
@@ -133,6 +173,11 @@ public class Client {
 		Object obj = job.collectResults(space);
 		long endTime = System.nanoTime();
 		System.out.println("Elapsed Time for the job: " + (endTime - startTime) + " ns");
+		String compression = Compression.report();
+		if(compression != null){
+			System.out.println(compression);
+			Compression.reset();
+		}
 		return obj;
 	}
 	
@@ -9,39 +9,43 @@ import java.awt.Container;
 import java.awt.Graphics;
 import java.awt.Image;
 import java.awt.image.BufferedImage;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Random;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
+import javax.imageio.ImageIO;
 import javax.swing.ImageIcon;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JScrollPane;
 
+import jobs.MandelbrotSetJob;
+import tasks.MandelbrotTile;
+
 /**
  * This class helps to produce a visualization of the different tasks.
  */
 public class Visualizer {
 	
-	/** The iteration limit. */
-	private static int iterationLimit;
+	/** The number of image rows below which a band of a Mandelbrot image is painted by a single thread. */
+	private static final int BAND_HEIGHT = 64;
 	
-	// A Map to store the Color object for each value of k that is computed in MandelbrotSet task
-	/** The color map. */
-	private static Map<Integer, Color> colorMap = new HashMap<Integer, Color>();	
+	/** The pool of threads that paint the bands of the Mandelbrot images. */
+	private static final ForkJoinPool renderPool = new ForkJoinPool();
 	
 	/**
 	 * Visualize.
 	 *
-	 * @param counts the counts
+	 * @param counts the counts of the numPixels x numPixels pixels, row by row as returned by MandelbrotSetJob
 	 * @param iterLimit the iter limit
 	 * @param numPixels the num pixels
 	 */
-	public static void visualizeMandelbrotSetTask(int[][] counts, int iterLimit, int numPixels)
+	public static void visualizeMandelbrotSetTask(int[] counts, int iterLimit, int numPixels)
 	{ 		
-		iterationLimit = iterLimit;
-	    
-	    JLabel mandelbrotLabel = displayMandelbrotSetTaskReturnValue(counts, numPixels);
+	    JLabel mandelbrotLabel = displayMandelbrotSetTaskReturnValue(counts, iterLimit, numPixels);
 
 	    // display JLabels: graphic images
 	    JFrame frame = new JFrame( "Visualization of MandelbrotSet Task" );
@@ -54,6 +58,82 @@ public class Visualizer {
 	}
 
 
+	/**
+	 * Opens an empty window for the image of a MandelbrotSetJob that streams its tiles, and paints each tile into it as it arrives.
+	 *
+	 * @param iterLimit the iter limit
+	 * @param numPixels the num pixels
+	 * @return the listener to pass to the MandelbrotSetJob
+	 */
+	public static MandelbrotSetJob.TileListener visualizeMandelbrotSetTiles(int iterLimit, final int numPixels)
+	{
+		final int[] palette = getPalette(iterLimit);
+		final BufferedImage image = new BufferedImage(numPixels, numPixels, BufferedImage.TYPE_INT_ARGB );
+		final int[] pixels = getPixels(image);
+		final JLabel mandelbrotLabel = new JLabel( new ImageIcon( image ) );
+
+	    JFrame frame = new JFrame( "Visualization of MandelbrotSet Task" );
+	    frame.setDefaultCloseOperation( JFrame.EXIT_ON_CLOSE );
+	    Container container = frame.getContentPane();
+	    container.setLayout( new BorderLayout() );
+	    container.add( new JScrollPane( mandelbrotLabel ), BorderLayout.CENTER);
+	    frame.pack();
+	    frame.setVisible( true );
+
+	    return new MandelbrotSetJob.TileListener() {
+			@Override
+			public void tileReady(MandelbrotTile tile) {
+				paint(tile, palette, pixels, numPixels, numPixels, 0, 0);
+				// A row of the tile is a column of the image.
+				mandelbrotLabel.repaint(tile.getStartRow(), numPixels - tile.getStartColumn() - tile.getWidth(), tile.getNumRows(), tile.getWidth());
+			}
+		};
+	}
+	
+	
+	/**
+	 * Writes the image of a MandelbrotSetJob to a PNG file, without a display.
+	 *
+	 * @param counts the counts of the numPixels x numPixels pixels, row by row as returned by MandelbrotSetJob
+	 * @param iterLimit the iter limit
+	 * @param numPixels the num pixels
+	 * @param file the file
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public static void writeMandelbrotSetImage(int[] counts, int iterLimit, int numPixels, File file) throws IOException
+	{
+		ImageIO.write(renderMandelbrotSet(counts, iterLimit, numPixels), "png", file);
+	}
+	
+	
+	/**
+	 * Writes every tile of a MandelbrotSetJob that streams its tiles to a PNG file of its own as it arrives, without a display.
+	 * The file of the tile whose first row and column are r and c is tile-r-c.png; it is oriented as its part of the whole image.
+	 *
+	 * @param iterLimit the iter limit
+	 * @param directory the directory that receives the files
+	 * @return the listener to pass to the MandelbrotSetJob
+	 */
+	public static MandelbrotSetJob.TileListener writeMandelbrotSetTiles(int iterLimit, final File directory)
+	{
+		final int[] palette = getPalette(iterLimit);
+		directory.mkdirs();
+		return new MandelbrotSetJob.TileListener() {
+			@Override
+			public void tileReady(MandelbrotTile tile) {
+				BufferedImage image = new BufferedImage(tile.getNumRows(), tile.getWidth(), BufferedImage.TYPE_INT_ARGB );
+				paint(tile, palette, getPixels(image), tile.getNumRows(), tile.getWidth(), tile.getStartRow(), tile.getStartColumn());
+				File file = new File(directory, "tile-" + tile.getStartRow() + "-" + tile.getStartColumn() + ".png");
+				try {
+					ImageIO.write(image, "png", file);
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+		};
+	}
+
+
 	/**
 	 * Visualize euclidean tsp task.
 	 *
@@ -158,44 +238,156 @@ public class Visualizer {
 	/**
 	 * Display mandelbrot set task return value.
 	 *
-	 * @param counts the counts
+	 * @param counts the counts, row by row; a row goes along the real axis and is drawn as a column of the image, with the imaginary axis pointing up
+	 * @param iterLimit the iter limit
 	 * @param numPixels the num pixels
 	 * @return j label
 	 */
-	private static JLabel displayMandelbrotSetTaskReturnValue( int[][] counts, int numPixels )
+	private static JLabel displayMandelbrotSetTaskReturnValue( int[] counts, int iterLimit, int numPixels )
 	{
-	    Image image = new BufferedImage(numPixels, numPixels, BufferedImage.TYPE_INT_ARGB );
-	    Graphics graphics = image.getGraphics();
-	    for ( int i = 0; i < counts.length; i++ )
-	    for ( int j = 0; j < counts.length; j++ )
-	    {
-	        graphics.setColor( getColor( counts[i][j] ) );
-	        graphics.fillRect(i, j, 1, 1);
-	    }
-	    ImageIcon imageIcon = new ImageIcon( image );
+	    ImageIcon imageIcon = new ImageIcon( renderMandelbrotSet( counts, iterLimit, numPixels ) );
 	    return new JLabel( imageIcon );
 	}
+	
+	/**
+	 * Renders the image of a MandelbrotSetJob.
+	 *
+	 * @param counts the counts, row by row
+	 * @param iterLimit the iter limit
+	 * @param numPixels the num pixels
+	 * @return the image
+	 */
+	private static BufferedImage renderMandelbrotSet( int[] counts, int iterLimit, int numPixels )
+	{
+	    BufferedImage image = new BufferedImage(numPixels, numPixels, BufferedImage.TYPE_INT_ARGB );
+	    paint(new MandelbrotTile(0, numPixels, 0, numPixels, counts), getPalette(iterLimit), getPixels(image), numPixels, numPixels, 0, 0);
+	    return image;
+	}
+	
+	/**
+	 * Gets the array of ARGB values behind an image, which is written directly rather than through a Graphics object.
+	 *
+	 * @param image the image, of type BufferedImage.TYPE_INT_ARGB
+	 * @return the pixels, row by row
+	 */
+	private static int[] getPixels( BufferedImage image )
+	{
+	    return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+	}
 
 	/**
-	 * Gets the color.
+	 * Gets the ARGB value of every value of k: black for the points that are considered to be in the set, and the color k otherwise.
 	 *
-	 * @param i the i
-	 * @return the color
+	 * @param iterLimit the iter limit
+	 * @return the palette, indexed by k
 	 */
-	private static Color getColor( int i )
-	{		
-	    if ( i == iterationLimit ){
-	    	return Color.BLACK;
-	    }	    
-	    Color color = colorMap.get(i);
-	    if(color == null){
-	    	//Random rand = new Random();
-	    	color = new Color(i);
-	    	//color = new Color(rand.nextFloat(), rand.nextFloat(), rand.nextFloat());
-		    colorMap.put(i, color);		    
+	private static int[] getPalette( int iterLimit )
+	{
+	    int[] palette = new int[iterLimit + 1];
+	    for ( int k = 0; k < iterLimit; k++ )
+	    {
+	        palette[k] = new Color(k).getRGB();
 	    }
-	    return color;
-
+	    palette[iterLimit] = Color.BLACK.getRGB();
+	    return palette;
+	}
+	
+	/**
+	 * Paints a tile into an image, with the rows of the tile as columns of the image and the imaginary axis pointing up, in bands of image rows painted in parallel.
+	 *
+	 * @param tile the tile
+	 * @param palette the palette
+	 * @param pixels the pixels of the image
+	 * @param imageWidth the width of the image
+	 * @param imageHeight the height of the image
+	 * @param originRow the row of the Mandelbrot set at the left edge of the image
+	 * @param originColumn the column of the Mandelbrot set at the bottom edge of the image
+	 */
+	private static void paint( MandelbrotTile tile, int[] palette, int[] pixels, int imageWidth, int imageHeight, int originRow, int originColumn )
+	{
+	    renderPool.invoke(new PaintBand(tile, palette, pixels, imageWidth, imageHeight, originRow, originColumn, 0, tile.getWidth()));
+	}
+	
+	/**
+	 * Paints the columns [from, to) of a tile, which become a band of rows of the image. Bands higher than BAND_HEIGHT are split in two.
+	 * Within a band, each row of the tile is read in sequence, and the rows of the image it is written to stay in the cache.
+	 */
+	private static class PaintBand extends RecursiveAction
+	{
+		/** The Constant serialVersionUID. */
+		private static final long serialVersionUID = 1L;
+		
+		/** The tile. */
+		private final MandelbrotTile tile;
+		
+		/** The palette. */
+		private final int[] palette;
+		
+		/** The pixels of the image. */
+		private final int[] pixels;
+		
+		/** The width and the height of the image. */
+		private final int imageWidth, imageHeight;
+		
+		/** The row and the column of the Mandelbrot set at the left and the bottom edges of the image. */
+		private final int originRow, originColumn;
+		
+		/** The columns of the tile painted by this band. */
+		private final int from, to;
+		
+		/**
+		 * Instantiates a new band.
+		 *
+		 * @param tile the tile
+		 * @param palette the palette
+		 * @param pixels the pixels of the image
+		 * @param imageWidth the width of the image
+		 * @param imageHeight the height of the image
+		 * @param originRow the row of the Mandelbrot set at the left edge of the image
+		 * @param originColumn the column of the Mandelbrot set at the bottom edge of the image
+		 * @param from the first column of the tile
+		 * @param to the column of the tile after the last one
+		 */
+		PaintBand( MandelbrotTile tile, int[] palette, int[] pixels, int imageWidth, int imageHeight, int originRow, int originColumn, int from, int to )
+		{
+		    this.tile = tile;
+		    this.palette = palette;
+		    this.pixels = pixels;
+		    this.imageWidth = imageWidth;
+		    this.imageHeight = imageHeight;
+		    this.originRow = originRow;
+		    this.originColumn = originColumn;
+		    this.from = from;
+		    this.to = to;
+		}
+		
+		/* (non-Javadoc)
+		 * @see java.util.concurrent.RecursiveAction#compute()
+		 */
+		@Override
+		protected void compute()
+		{
+		    if ( to - from > BAND_HEIGHT )
+		    {
+		        int middle = (from + to) >>> 1;
+		        invokeAll(new PaintBand(tile, palette, pixels, imageWidth, imageHeight, originRow, originColumn, from, middle),
+		                  new PaintBand(tile, palette, pixels, imageWidth, imageHeight, originRow, originColumn, middle, to));
+		        return;
+		    }
+		    IntBuffer counts = tile.getCountBuffer();
+		    int width = tile.getWidth();
+		    // The image row of column c of the tile is top - c.
+		    int top = imageHeight - 1 - (tile.getStartColumn() - originColumn);
+		    for ( int r = 0; r < tile.getNumRows(); r++ )
+		    {
+		        int x = tile.getStartRow() - originRow + r;
+		        int offset = r * width;
+		        for ( int c = from; c < to; c++ )
+		        {
+		            pixels[(top - c) * imageWidth + x] = palette[counts.get(offset + c)];
+		        }
+		    }
+		}
 	}
 	
 	
@@ -57,9 +57,9 @@ public class Client {
 		switch(operation){
 			case 1:
 				// mJob is an instance of MandelbrotSet Job.
-				Job<int[][]> mJob = new MandelbrotSetJob(new double[] {-0.7510975859375, 0.1315680625}, 0.01611,
+				Job<int[]> mJob = new MandelbrotSetJob(new double[] {-0.7510975859375, 0.1315680625}, 0.01611,
 						1024, 512);		
-				int[][] counts = (int[][]) runTask(mJob);
+				int[] counts = (int[]) runTask(mJob);
 				Visualizer.visualizeMandelbrotSetTask(counts, 512, 1024);
 				break;
 			case 2:
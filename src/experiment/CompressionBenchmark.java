@@ -0,0 +1,91 @@
+/*
+ * @author gautham
+ */
+package experiment;
+
+import java.nio.IntBuffer;
+
+import tasks.ScalarMandelbrotKernel;
+import api.Compression;
+
+/**
+ * A benchmark of the compressions of int arrays on the k values of Mandelbrot tiles, the largest payloads the Computers send.
+ * The image of the MandelbrotSet client is cut into tiles of TILE_ROWS rows, and every tile is compressed and decompressed as Codecs would.
+ * Besides the ratio and the time spent, the benchmark reports the time a tile would take from one end to the other over a link of LINK_MB_PER_S:
+ * the encoding, the transfer of what was encoded, and the decoding.
+ * Usage: CompressionBenchmark [numPixels] [iterationLimit]
+ */
+public class CompressionBenchmark {
+
+	/** The number of rows of a tile. */
+	private static final int TILE_ROWS = 32;
+
+	/** The bandwidth of the link, in MB per second: that of 1 GbE. */
+	private static final double LINK_MB_PER_S = 125;
+
+	/** The number of rounds run before timing. */
+	private static final int WARMUP_ROUNDS = 5;
+
+	/** The number of timed rounds. */
+	private static final int ROUNDS = 10;
+
+	/**
+	 * The main method.
+	 *
+	 * @param args the number of pixels on a side (default 1024) and the iteration limit (default 512)
+	 * @throws Exception the exception
+	 */
+	public static void main(String[] args) throws Exception {
+		int numPixels = args.length > 0 ? Integer.parseInt(args[0]) : 1024;
+		int iterationLimit = args.length > 1 ? Integer.parseInt(args[1]) : 512;
+		double[] corner = {-0.7510975859375, 0.1315680625};
+		double edgeLength = 0.01611;
+
+		int numTiles = numPixels / TILE_ROWS;
+		int[][] tiles = new int[numTiles][TILE_ROWS * numPixels];
+		for(int row = 0; row < numPixels; row++){
+			double real = corner[0] + row * edgeLength / numPixels;
+			for(int column = 0; column < numPixels; column++){
+				double imag = corner[1] + column * edgeLength / numPixels;
+				tiles[row / TILE_ROWS][(row % TILE_ROWS) * numPixels + column] = ScalarMandelbrotKernel.getK(real, imag, iterationLimit);
+			}
+		}
+		long rawBytes = (long) numPixels * numPixels * 4;
+
+		System.out.printf("%d tiles of %d x %d, %.1f MB; link %.0f MB/s%n", numTiles, TILE_ROWS, numPixels, rawBytes / 1e6, LINK_MB_PER_S);
+		System.out.printf("%-10s %10s %8s %12s %12s %14s%n", "codec", "MB", "ratio", "encode ms", "decode ms", "end-to-end ms");
+		System.out.printf("%-10s %10.2f %7.1f%% %12.2f %12.2f %14.2f%n", "none", rawBytes / 1e6, 100.0, 0.0, 0.0, rawBytes / 1e6 / LINK_MB_PER_S * 1e3);
+		for(int compression : new int[] {Compression.DELTA_VARINT, Compression.DEFLATE}){
+			byte[][] encoded = new byte[numTiles][];
+			long encodeNanos = Long.MAX_VALUE, decodeNanos = Long.MAX_VALUE;
+			for(int round = 0; round < WARMUP_ROUNDS + ROUNDS; round++){
+				long start = System.nanoTime();
+				for(int t = 0; t < numTiles; t++){
+					encoded[t] = Compression.encode(compression, IntBuffer.wrap(tiles[t]));
+				}
+				long encodeEnd = System.nanoTime();
+				for(int t = 0; t < numTiles; t++){
+					if(encoded[t] != null){
+						IntBuffer decoded = Compression.decode(compression, encoded[t], tiles[t].length);
+						if(round == 0 && !decoded.equals(IntBuffer.wrap(tiles[t]))){
+							throw new IllegalStateException(Compression.getName(compression) + " does not round-trip tile " + t);
+						}
+					}
+				}
+				long decodeEnd = System.nanoTime();
+				if(round >= WARMUP_ROUNDS){
+					encodeNanos = Math.min(encodeNanos, encodeEnd - start);
+					decodeNanos = Math.min(decodeNanos, decodeEnd - encodeEnd);
+				}
+			}
+			long wireBytes = 0;
+			for(int t = 0; t < numTiles; t++){
+				// A tile that does not compress well enough is sent as it is.
+				wireBytes += encoded[t] != null ? encoded[t].length : tiles[t].length * 4;
+			}
+			double transferMillis = wireBytes / 1e6 / LINK_MB_PER_S * 1e3;
+			System.out.printf("%-10s %10.2f %7.1f%% %12.2f %12.2f %14.2f%n", Compression.getName(compression), wireBytes / 1e6, 100.0 * wireBytes / rawBytes,
+					encodeNanos / 1e6, decodeNanos / 1e6, encodeNanos / 1e6 + transferMillis + decodeNanos / 1e6);
+		}
+	}
+}
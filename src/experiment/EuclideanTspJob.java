@@ -7,8 +7,10 @@ import java.rmi.RemoteException;
 import java.util.Arrays;
 import java.util.Map;
 
+import tasks.DistanceMatrix;
 import tasks.EuclideanTspTask;
 import api.Result;
+import api.SharedData;
 
 
 /**
@@ -43,7 +45,9 @@ public class EuclideanTspJob implements Job<int[]>{
 			permutation[i] = i + 1;
 		}
 		// The first task has level = 0
-		EuclideanTspTask task = new EuclideanTspTask(cities, prefix, permutation, 0);
+		// Client, Space and Computer share this JVM, so the distances only need to be cached locally.
+		SharedData.put("distances", new DistanceMatrix(cities));
+		EuclideanTspTask task = new EuclideanTspTask("distances", prefix, permutation, 0);
 		this.startTime = System.nanoTime();
 		try{
 			space.put(task);
@@ -0,0 +1,82 @@
+/*
+ * @author gautham
+ */
+package experiment;
+
+import java.util.Arrays;
+
+import tasks.MandelbrotKernel;
+import tasks.ScalarMandelbrotKernel;
+import tasks.VectorMandelbrotKernel;
+
+/**
+ * A microbenchmark of the Mandelbrot kernels: it computes the same image with the scalar kernel and with the vectorized one,
+ * and checks that the k values are identical.
+ * It needs the jdk.incubator.vector module: java --add-modules jdk.incubator.vector experiment.MandelbrotKernelBenchmark [numPixels [iterationLimit [rounds]]]
+ */
+public class MandelbrotKernelBenchmark {
+
+	/** The number of rounds run before timing, so that both kernels get compiled. */
+	private static final int WARMUP_ROUNDS = 3;
+
+	/**
+	 * The main method.
+	 *
+	 * @param args the number of pixels along a side (default 1024), the iteration limit (default 512) and the number of timed rounds (default 5)
+	 */
+	public static void main(String[] args) {
+		int numPixels = args.length > 0 ? Integer.parseInt(args[0]) : 1024;
+		int iterationLimit = args.length > 1 ? Integer.parseInt(args[1]) : 512;
+		int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+		// The view of the Mandelbrot client.
+		double[] leftCorner = {-0.7510975859375, 0.1315680625};
+		double edgeLength = 0.01611;
+
+		double[] cImag = new double[numPixels];
+		for(int j = 0; j < numPixels; j++){
+			cImag[j] = leftCorner[1] + (j * edgeLength / numPixels);
+		}
+		MandelbrotKernel scalar = new ScalarMandelbrotKernel();
+		MandelbrotKernel vector = new VectorMandelbrotKernel();
+		int[] scalarCounts = new int[numPixels * numPixels];
+		int[] vectorCounts = new int[numPixels * numPixels];
+		long scalarTime = 0, vectorTime = 0;
+		for(int round = -WARMUP_ROUNDS; round < rounds; round++){
+			long startTime = System.nanoTime();
+			compute(scalar, leftCorner[0], edgeLength, cImag, iterationLimit, scalarCounts);
+			long midTime = System.nanoTime();
+			compute(vector, leftCorner[0], edgeLength, cImag, iterationLimit, vectorCounts);
+			long endTime = System.nanoTime();
+			if(round >= 0){
+				scalarTime += midTime - startTime;
+				vectorTime += endTime - midTime;
+			}
+		}
+		long iterations = 0;
+		for(int k : scalarCounts){
+			iterations += k;
+		}
+		System.out.println(numPixels + " x " + numPixels + " pixels, iteration limit " + iterationLimit + ", " + iterations + " iterations per round, " + rounds + " rounds");
+		System.out.println("Vector lanes: " + jdk.incubator.vector.DoubleVector.SPECIES_PREFERRED.length());
+		System.out.println("Scalar: " + scalarTime / rounds / 1000000 + " ms per round, " + (double) scalarTime / rounds / iterations + " ns per iteration");
+		System.out.println("Vector: " + vectorTime / rounds / 1000000 + " ms per round, " + (double) vectorTime / rounds / iterations + " ns per iteration");
+		System.out.println("k values " + (Arrays.equals(scalarCounts, vectorCounts) ? "match" : "DIFFER"));
+	}
+
+	/**
+	 * Computes the image row by row with a kernel, the way a leaf of MandelbrotSetTask does.
+	 *
+	 * @param kernel the kernel
+	 * @param left the real part of the left corner
+	 * @param edgeLength the edge length
+	 * @param cImag the imaginary parts of the columns
+	 * @param iterationLimit the iteration limit
+	 * @param counts the array that receives the k values
+	 */
+	private static void compute(MandelbrotKernel kernel, double left, double edgeLength, double[] cImag, int iterationLimit, int[] counts) {
+		int numPixels = cImag.length;
+		for(int i = 0; i < numPixels; i++){
+			kernel.computeRow(left + (i * edgeLength / numPixels), cImag, iterationLimit, counts, i * numPixels);
+		}
+	}
+}
@@ -4,16 +4,15 @@
 package experiment;
 
 import java.rmi.RemoteException;
-import java.util.Map;
-import java.util.Map.Entry;
 
 import tasks.MandelbrotSetTask;
+import tasks.MandelbrotTile;
 import api.Result;
 
 /**
  * This class helps to produce a visualization of the some part of the Mandelbrot set which is probably one of the most well known fractals, and probably one of the most widely implemented fractal in fractal plotting programs.
  */
-public class MandelbrotSetJob implements Job<int[][]> {
+public class MandelbrotSetJob implements Job<int[]> {
 
 	/** The left corner coordinates of the square in the complex plane. */
 	private double[] leftCornerCoordinates;
@@ -67,20 +66,14 @@ public class MandelbrotSetJob implements Job<int[][]> {
 	 * Each result in the MandelbrotSet job is a one-dimensional array that contains the 'k' values of multiple rows (which correspond to the number of rows that each task works upon)
 	 */
 	@Override
-	public int[][] collectResults(Space space) {
-		int[][] count = new int[this.numSquares][this.numSquares];
+	public int[] collectResults(Space space) {
+		int[] count = null;
 		
 		try {
-			Result<Map<Integer, int[]>> result = space.take();
+			Result<MandelbrotTile> result = space.take();
 			long elapsedTime = System.nanoTime() - this.startTime;
 			System.out.println("Elapsed Time for the task: " + elapsedTime + " ns");
-			for(Entry<Integer, int[]> entry : result.getTaskReturnValue().entrySet()){
-				int i = entry.getKey();
-				int[] values = entry.getValue();
-				for(int j = 0; j < values.length; j++){
-					count[i][this.numSquares - j - 1] = values[j];
-				}
-			}
+			count = result.getTaskReturnValue().getCounts();
 		} catch (RemoteException e) {
 			// TODO Auto-generated catch block
 			e.printStackTrace();
@@ -24,6 +24,7 @@ import utils.Constants;
 import api.Result;
 
 import api.Task;
+import api.TaskIdGenerator;
 
 
 /**
@@ -249,9 +250,9 @@ public class SpaceImpl extends UnicastRemoteObject implements Space
 		}
 		//System.out.println("Successor in storeResult: " + successorTaskId);
 		
-		Task<T>[] inputs = successorTask.getInputList();
+		Object[] inputs = successorTask.getInputList();
 		
-		inputs[task.getArgNo()] = task;
+		inputs[task.getArgNo()] = task.getResult().getTaskReturnValue();
 		int joinCounter = successorTask.getJoinCounter() - 1;
 		//System.out.println("Join counter: " + joinCounter);
 		successorTask.setJoinCounter(joinCounter);		
@@ -280,13 +281,13 @@ public class SpaceImpl extends UnicastRemoteObject implements Space
 		this.waitingTasks.put(successorTask.getTaskId(), successorTask);
 		
 		// if the parent task is not the root task
-		if(parentTask.getSuccessorTaskId() != null){
+		if(parentTask.getSuccessorTaskId() != TaskIdGenerator.NO_TASK){
 			/* 
 			 * Update the parent successor's inputList.
 			 * In that list, the parent task must be substituted with the child tasks' successor task 
 			 */
 			Task<T> parentSuccessor = this.waitingTasks.get(parentTask.getSuccessorTaskId());
-			Task<T>[] parentInputList = parentSuccessor.getInputList();
+			Object[] parentInputList = parentSuccessor.getInputList();
 			successorTask.setArgNo(parentTask.getArgNo());
 			parentInputList[parentTask.getArgNo()] = successorTask;
 			
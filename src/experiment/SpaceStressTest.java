@@ -0,0 +1,88 @@
+/*
+ * @author gautham
+ */
+package experiment;
+
+import java.rmi.Naming;
+import java.rmi.registry.LocateRegistry;
+import java.rmi.registry.Registry;
+
+import jobs.FibonacciJob;
+import system.Computer2Space;
+import system.ComputerImpl;
+import system.SpaceImpl;
+import api.Space;
+
+/**
+ * A concurrency stress test of the Space: many Computers, each with several workers, run against one Space in this JVM.
+ * Local execution is turned off on the Computers, so that every Fibonacci task is split and every sub-task, successor and result goes through the Space,
+ * whose waiting successors are then joined by results that arrive at the same time from all the workers.
+ * A Fibonacci job is run over and over, and every answer is checked; a lost or doubled join shows up as a wrong answer or a job that never completes.
+ * Usage: SpaceStressTest [numComputers] [numWorkers] [fibonacciN] [runs]
+ */
+public class SpaceStressTest {
+
+	/** The port of the rmiregistry. */
+	private static final int PORT = 1299;
+
+	/**
+	 * The main method.
+	 *
+	 * @param args the number of Computers (default 8), the number of workers of each (default 4), the n of the Fibonacci job (default 20) and the number of runs (default 20)
+	 * @throws Exception the exception
+	 */
+	public static void main(String[] args) throws Exception {
+		int numComputers = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+		int numWorkers = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+		int n = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+		int runs = args.length > 3 ? Integer.parseInt(args[3]) : 20;
+
+		SpaceImpl space = new SpaceImpl();
+		Registry registry = LocateRegistry.createRegistry(PORT);
+		registry.rebind(Space.SERVICE_NAME, space);
+		String url = "//localhost:" + PORT + "/" + Space.SERVICE_NAME;
+		for(int i = 0; i < numComputers; i++){
+			ComputerImpl computer = new ComputerImpl(numWorkers, utils.Constants.COMPUTER_ADMISSION_LIMIT);
+			computer.setLocalExecution(false);
+			Computer2Space remote = (Computer2Space) Naming.lookup(url);
+			computer.setSpace(remote);
+			remote.register(computer);
+		}
+		Space client = (Space) Naming.lookup(url);
+
+		int expected = fibonacci(n);
+		int failures = 0;
+		for(int run = 0; run < runs; run++){
+			FibonacciJob job = new FibonacciJob(n);
+			long start = System.nanoTime();
+			job.generateTasks(client);
+			Integer value = job.collectResults(client);
+			long elapsedTime = System.nanoTime() - start;
+			if(value == null || value != expected){
+				failures++;
+				System.out.println("Run " + run + ": F(" + n + ") = " + value + ", expected " + expected);
+			}
+			else{
+				System.out.printf("Run %d: F(%d) = %d in %.1f ms%n", run, n, value, elapsedTime / 1e6);
+			}
+		}
+		System.out.println(numComputers + " Computers x " + numWorkers + " workers, " + runs + " runs: " + (failures == 0 ? "all correct" : failures + " wrong"));
+		System.exit(failures == 0 ? 0 : 1);
+	}
+
+	/**
+	 * Computes a Fibonacci number iteratively, as FibonacciTask defines them.
+	 *
+	 * @param n the n
+	 * @return F(n)
+	 */
+	private static int fibonacci(int n) {
+		int previous = 0, current = 1;
+		for(int i = 0; i < n; i++){
+			int next = previous + current;
+			previous = current;
+			current = next;
+		}
+		return previous;
+	}
+}
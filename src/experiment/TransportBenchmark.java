@@ -0,0 +1,160 @@
+/*
+ * @author gautham
+ */
+package experiment;
+
+import java.rmi.Naming;
+import java.rmi.registry.LocateRegistry;
+import java.rmi.registry.Registry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jobs.FibonacciJob;
+import system.Computer;
+import system.Computer2Space;
+import system.ComputerImpl;
+import system.NioTransport;
+import system.SpaceImpl;
+import tasks.MandelbrotTile;
+import api.Result;
+import api.Space;
+
+/**
+ * A localhost benchmark of the transports between the Space and the Computers: RMI and the NIO transport.
+ * For each transport it starts a Space and its Computers in this JVM, then measures
+ * the rate of small calls from one and from several threads, the rate of calls that return a large Mandelbrot tile, and the time of a Fibonacci job, whose tasks all travel between the Space and the Computers.
+ * Usage: TransportBenchmark [numComputers] [fibonacciN] [transport...]
+ */
+public class TransportBenchmark {
+
+	/** The number of calls each thread makes in a round of small calls. */
+	private static final int SMALL_CALLS = 20000;
+
+	/** The number of calls each thread makes in a round of large calls. */
+	private static final int LARGE_CALLS = 200;
+
+	/** The number of ints in the payload of a large call. */
+	private static final int LARGE_PAYLOAD = 256 * 1024;
+
+	/** The number of threads that call at once in the concurrent round. */
+	private static final int CONCURRENT_CALLERS = 8;
+
+	/** The number of times the Fibonacci job is run; the first run is a warm-up. */
+	private static final int JOB_RUNS = 6;
+
+	/** The port of the first rmiregistry; each transport gets a registry of its own. */
+	private static final int FIRST_PORT = 1199;
+
+	/**
+	 * The main method.
+	 *
+	 * @param args the number of Computers (default 2), the n of the Fibonacci job (default 20) and the transports (default rmi nio)
+	 * @throws Exception the exception
+	 */
+	public static void main(String[] args) throws Exception {
+		MandelbrotTile.registerCodec();
+		int numComputers = args.length > 0 ? Integer.parseInt(args[0]) : 2;
+		int n = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+		String[] transports = args.length > 2 ? java.util.Arrays.copyOfRange(args, 2, args.length) : new String[] {"rmi", "nio"};
+
+		System.out.printf("%-10s %14s %14s %14s %14s%n", "transport", "calls/s x1", "calls/s x" + CONCURRENT_CALLERS, "MB/s (1 MB)", "fib(" + n + ") ms");
+		int port = FIRST_PORT;
+		for(String transport : transports){
+			SpaceImpl space = new SpaceImpl();
+			Registry registry = LocateRegistry.createRegistry(port);
+			registry.rebind(Space.SERVICE_NAME, space);
+			String url = "//localhost:" + port + "/" + Space.SERVICE_NAME;
+			if(transport.equals("nio")){
+				NioTransport.listen(space, port + 1);
+			}
+			List<Computer2Space> remotes = new ArrayList<Computer2Space>();
+			for(int i = 0; i < numComputers; i++){
+				Computer computer = new ComputerImpl(1, utils.Constants.COMPUTER_ADMISSION_LIMIT);
+				Computer2Space remote = transport.equals("nio") ? NioTransport.connect("localhost", port + 1, computer) : (Computer2Space) Naming.lookup(url);
+				computer.setSpace(remote);
+				remote.register(computer);
+				remotes.add(remote);
+			}
+			Space client = (Space) Naming.lookup(url);
+			Computer2Space remote = remotes.get(0);
+			Result<MandelbrotTile> tile = new Result<MandelbrotTile>();
+			tile.setTaskReturnValue(new MandelbrotTile(0, LARGE_PAYLOAD / 512, 0, 512, new int[LARGE_PAYLOAD]));
+			space.putSharedData("TransportBenchmark.payload", tile);
+
+			smallCalls(remote, 1, SMALL_CALLS);
+			double single = smallCalls(remote, 1, SMALL_CALLS);
+			smallCalls(remote, CONCURRENT_CALLERS, SMALL_CALLS / CONCURRENT_CALLERS);
+			double concurrent = smallCalls(remote, CONCURRENT_CALLERS, SMALL_CALLS / CONCURRENT_CALLERS);
+			largeCalls(remote, LARGE_CALLS / 4);
+			double bandwidth = largeCalls(remote, LARGE_CALLS);
+
+			long best = Long.MAX_VALUE;
+			for(int run = 0; run < JOB_RUNS; run++){
+				FibonacciJob job = new FibonacciJob(n);
+				long start = System.nanoTime();
+				job.generateTasks(client);
+				job.collectResults(client);
+				if(run > 0){
+					best = Math.min(best, System.nanoTime() - start);
+				}
+			}
+			System.out.printf("%-10s %14.0f %14.0f %14.1f %14.1f%n", transport, single, concurrent, bandwidth, best / 1e6);
+			port += 2;
+		}
+		System.exit(0);
+	}
+
+	/**
+	 * Measures the rate of small calls: Computer2Space.getUpperBound, whose argument and return value are a few bytes.
+	 *
+	 * @param remote the space, as the Computers see it
+	 * @param callers the number of threads that call at once
+	 * @param callsPerCaller the number of calls each thread makes
+	 * @return the number of calls per second
+	 * @throws InterruptedException the interrupted exception
+	 */
+	private static double smallCalls(final Computer2Space remote, int callers, final int callsPerCaller) throws InterruptedException {
+		final AtomicLong failures = new AtomicLong();
+		Thread[] threads = new Thread[callers];
+		for(int t = 0; t < callers; t++){
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						for(int i = 0; i < callsPerCaller; i++){
+							remote.getUpperBound("TransportBenchmark.bound");
+						}
+					} catch (Exception e) {
+						failures.incrementAndGet();
+						e.printStackTrace();
+					}
+				}
+			};
+		}
+		long start = System.nanoTime();
+		for(Thread thread : threads){
+			thread.start();
+		}
+		for(Thread thread : threads){
+			thread.join();
+		}
+		return callers * (double) callsPerCaller / ((System.nanoTime() - start) / 1e9);
+	}
+
+	/**
+	 * Measures the rate at which a large payload comes back: Computer2Space.getSharedData of the result of a Mandelbrot task, whose tile has LARGE_PAYLOAD k values.
+	 *
+	 * @param remote the space, as the Computers see it
+	 * @param calls the number of calls
+	 * @return the megabytes per second
+	 * @throws Exception the exception
+	 */
+	private static double largeCalls(Computer2Space remote, int calls) throws Exception {
+		long start = System.nanoTime();
+		for(int i = 0; i < calls; i++){
+			remote.getSharedData("TransportBenchmark.payload");
+		}
+		return calls * 4.0 * LARGE_PAYLOAD / (1 << 20) / ((System.nanoTime() - start) / 1e9);
+	}
+}
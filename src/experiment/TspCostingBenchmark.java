@@ -0,0 +1,135 @@
+/*
+ * @author gautham
+ */
+package experiment;
+
+import java.util.Map;
+import java.util.Random;
+
+import tasks.DistanceMatrix;
+import tasks.EuclideanTspTask;
+import api.SharedData;
+
+/**
+ * A microbenchmark of the tour costing in the leaves of the Euclidean TSP.
+ * It times a leaf task, which costs every permutation incrementally with a precomputed distance matrix,
+ * against the former way of recomputing the whole tour with Math.pow and Math.sqrt for every permutation.
+ * Usage: TspCostingBenchmark [numCities [rounds]]
+ */
+public class TspCostingBenchmark {
+
+	/** The number of rounds run before timing, so that both versions get compiled. */
+	private static final int WARMUP_ROUNDS = 3;
+
+	/**
+	 * The main method.
+	 *
+	 * @param args the number of cities (default 13) and the number of timed rounds (default 5)
+	 */
+	public static void main(String[] args) {
+		int numCities = args.length > 0 ? Integer.parseInt(args[0]) : 13;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+		Random random = new Random(42);
+		double[][] cities = new double[numCities][2];
+		for(int i = 0; i < numCities; i++){
+			cities[i][0] = random.nextDouble() * 100;
+			cities[i][1] = random.nextDouble() * 100;
+		}
+		SharedData.put("distances", new DistanceMatrix(cities));
+		// A leaf at the base level fixes the first three cities and permutes the rest.
+		int[] prefix = {0, 1, 2};
+		int[] permutation = new int[numCities - prefix.length];
+		for(int i = 0; i < permutation.length; i++){
+			permutation[i] = i + prefix.length;
+		}
+		long permutations = 1;
+		for(int i = 2; i <= permutation.length; i++){
+			permutations *= i;
+		}
+
+		double baseline = 0, incremental = 0;
+		long baselineTime = 0, incrementalTime = 0;
+		for(int round = -WARMUP_ROUNDS; round < rounds; round++){
+			long startTime = System.nanoTime();
+			baseline = recomputeAll(cities, prefix, permutation.clone());
+			long midTime = System.nanoTime();
+			EuclideanTspTask task = new EuclideanTspTask("distances", prefix, permutation.clone(), 2);
+			Map<int[], Double> result = task.execute().getTaskReturnValue();
+			incremental = result.values().iterator().next();
+			long endTime = System.nanoTime();
+			if(round >= 0){
+				baselineTime += midTime - startTime;
+				incrementalTime += endTime - midTime;
+			}
+		}
+		System.out.println(numCities + " cities, " + permutations + " permutations per round, " + rounds + " rounds");
+		System.out.println("Full recomputation: " + baselineTime / rounds / 1000000 + " ms per round, " + (double) baselineTime / rounds / permutations + " ns per permutation");
+		System.out.println("Incremental:        " + incrementalTime / rounds / 1000000 + " ms per round, " + (double) incrementalTime / rounds / permutations + " ns per permutation");
+		System.out.println("Minimal distances " + (baseline == incremental ? "match: " : "DIFFER: ") + baseline + " / " + incremental);
+	}
+
+	/**
+	 * The former costing of a leaf task: every permutation is costed from scratch with Math.pow and Math.sqrt.
+	 *
+	 * @param cities the cities
+	 * @param prefix the prefix
+	 * @param permutation the first permutation, which is skipped as in the task
+	 * @return the minimal distance
+	 */
+	private static double recomputeAll(double[][] cities, int[] prefix, int[] permutation) {
+		double minDistance = Double.MAX_VALUE;
+		double initDistance = 0;
+		for(int i = 0; i < prefix.length - 1; i++){
+			initDistance += calculateDistance(cities[prefix[i]], cities[prefix[i + 1]]);
+		}
+		while(nextPermutation(permutation)){
+			double currentDistance = initDistance;
+			currentDistance += calculateDistance(cities[prefix[prefix.length - 1]], cities[permutation[0]]);
+			for(int j = 0; j < permutation.length - 1; j++){
+				currentDistance += calculateDistance(cities[permutation[j]], cities[permutation[j + 1]]);
+			}
+			currentDistance += calculateDistance(cities[permutation[permutation.length - 1]], cities[prefix[0]]);
+			if(minDistance > currentDistance){
+				minDistance = currentDistance;
+			}
+		}
+		return minDistance;
+	}
+
+	/**
+	 * Advances the permutation in place to the next one in lexicographic order.
+	 *
+	 * @param permutation the permutation
+	 * @return false, if the permutation was the last one
+	 */
+	private static boolean nextPermutation(int[] permutation) {
+		int k, l;
+		for (k = permutation.length - 2; k >= 0 && permutation[k] >= permutation[k + 1]; k--);
+		if(k == -1){
+			return false;
+		}
+		for (l = permutation.length - 1; permutation[k] >= permutation[l]; l--);
+		int temp = permutation[k];
+		permutation[k] = permutation[l];
+		permutation[l] = temp;
+		for (int i = k + 1, j = permutation.length - 1; i < j; i++, j--){
+			temp = permutation[i];
+			permutation[i] = permutation[j];
+			permutation[j] = temp;
+		}
+		return true;
+	}
+
+	/**
+	 * Calculate the Euclidean distance the way the task used to.
+	 *
+	 * @param pointA the starting point
+	 * @param pointB the ending point
+	 * @return the distance
+	 */
+	private static double calculateDistance(double[] pointA, double[] pointB) {
+		double temp1 = Math.pow((pointA[0] - pointB[0]), 2);
+		double temp2 = Math.pow((pointA[1] - pointB[1]), 2);
+		return Math.sqrt(temp1 + temp2);
+	}
+}
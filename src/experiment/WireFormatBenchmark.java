@@ -0,0 +1,140 @@
+/*
+ * @author gautham
+ */
+package experiment;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import system.Batch;
+import tasks.EuclideanTspTask;
+import tasks.FibonacciTask;
+import tasks.HeldKarpTspTask;
+import tasks.MandelbrotSetTask;
+import tasks.MandelbrotTile;
+import utils.Constants;
+import api.Result;
+import api.Task;
+
+/**
+ * A microbenchmark of the wire format of the tasks, results and batches that travel between the Space, the Computers and the Client.
+ * Every object is written to a stream of its own, as an RMI call does, and read back; the benchmark reports the bytes and the time per object.
+ * Usage: WireFormatBenchmark [iterations]
+ */
+public class WireFormatBenchmark {
+
+	/** The number of rounds run before timing. */
+	private static final int WARMUP_ROUNDS = 3;
+
+	/**
+	 * The main method.
+	 *
+	 * @param args the number of timed iterations per object (default 20000)
+	 * @throws Exception the exception
+	 */
+	public static void main(String[] args) throws Exception {
+		int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+
+		Map<String, Object> samples = new java.util.LinkedHashMap<String, Object>();
+		samples.put("FibonacciTask", new FibonacciTask(20, Constants.CHILD_TASK));
+		samples.put("MandelbrotSetTask", new MandelbrotSetTask(new double[] {-0.7510975859375, 0.1315680625}, 0.01611, 1024, 512, 0, 31, 0, 1023, Constants.MANDELBROTSET_MODE_TILED));
+		samples.put("EuclideanTspTask", new EuclideanTspTask("EuclideanTspJob.distances.0", new int[] {0, 3, 7}, new int[] {1, 2, 4, 5, 6, 8, 9, 10, 11}, 2, true));
+		samples.put("HeldKarpTspTask", new HeldKarpTspTask("HeldKarpTspJob.distances.0", new int[] {0, 5}, new int[] {1, 2, 3, 4, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16}, 1));
+
+		Result<Integer> fibonacci = new Result<Integer>();
+		fibonacci.setTaskReturnValue(6765);
+		samples.put("Result<Integer>", fibonacci);
+		Map<int[], Double> tourMap = new HashMap<int[], Double>(1);
+		tourMap.put(new int[] {0, 4, 8, 9, 5, 1, 2, 6, 10, 11, 7, 3}, 31.313708498984763);
+		Result<Map<int[], Double>> tour = new Result<Map<int[], Double>>();
+		tour.setTaskReturnValue(tourMap);
+		samples.put("Result<Map<int[],Double>>", tour);
+		int[] counts = new int[32 * 1024];
+		for(int i = 0; i < counts.length; i++){
+			counts[i] = 1 + i % 512;
+		}
+		Result<MandelbrotTile> tile = new Result<MandelbrotTile>();
+		tile.setTaskReturnValue(new MandelbrotTile(0, 32, 0, 1024, counts));
+		samples.put("Result<MandelbrotTile> 32x1024", tile);
+
+		Batch batch = new Batch();
+		for(int i = 0; i < 64; i++){
+			Task<Integer> task = new FibonacciTask(i % 2, Constants.CHILD_TASK);
+			task.execute();
+			task.setSuccessorTaskId(1000 + i / 2);
+			task.setArgNo(i % 2);
+			batch.addResult(task);
+		}
+		samples.put("Batch of 64 Fibonacci results", batch);
+		Batch splits = new Batch();
+		for(int i = 0; i < 16; i++){
+			FibonacciTask parent = new FibonacciTask(20, Constants.CHILD_TASK);
+			List<Task<Integer>> none = new ArrayList<Task<Integer>>(0);
+			splits.addSplit(parent, none, parent.createSuccessorTask());
+		}
+		samples.put("Batch of 16 Fibonacci splits", splits);
+
+		System.out.printf("%-32s %10s %12s %12s%n", "Object", "bytes", "write ns", "read ns");
+		for(Map.Entry<String, Object> sample : samples.entrySet()){
+			Object value = sample.getValue();
+			byte[] bytes = write(value);
+			read(bytes);
+			long writeTime = 0, readTime = 0;
+			for(int round = -WARMUP_ROUNDS; round < 5; round++){
+				long startTime = System.nanoTime();
+				for(int i = 0; i < iterations / 5; i++){
+					bytes = write(value);
+				}
+				long midTime = System.nanoTime();
+				for(int i = 0; i < iterations / 5; i++){
+					read(bytes);
+				}
+				long endTime = System.nanoTime();
+				if(round >= 0){
+					writeTime += midTime - startTime;
+					readTime += endTime - midTime;
+				}
+			}
+			System.out.printf("%-32s %10d %12d %12d%n", sample.getKey(), bytes.length, writeTime / iterations, readTime / iterations);
+		}
+		Result<?> copy = (Result<?>) read(write(tile));
+		System.out.println("Tile round trip " + (Arrays.equals(counts, ((MandelbrotTile) copy.getTaskReturnValue()).getCounts()) ? "matches" : "DIFFERS"));
+	}
+
+	/**
+	 * Writes an object to a stream of its own.
+	 *
+	 * @param value the object
+	 * @return the bytes
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private static byte[] write(Object value) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(value);
+		out.close();
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Reads an object from a stream of its own.
+	 *
+	 * @param bytes the bytes
+	 * @return the object
+	 * @throws Exception the exception
+	 */
+	private static Object read(byte[] bytes) throws Exception {
+		ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes));
+		Object value = in.readObject();
+		in.close();
+		return value;
+	}
+}
@@ -0,0 +1,115 @@
+/*
+ * @author gautham
+ */
+package jobs;
+
+import java.math.BigDecimal;
+import java.rmi.RemoteException;
+import java.util.UUID;
+
+import tasks.DeepZoomMandelbrotTask;
+import tasks.MandelbrotTile;
+import tasks.ReferenceOrbit;
+import api.Result;
+import api.Space;
+
+/**
+ * This class produces a visualization of a deep zoom into the Mandelbrot set, down to edge lengths far below the 1e-13 or so at which MandelbrotSetJob runs out of double precision.
+ * The center of the image is given in decimal digits, as precisely as the zoom needs. Its orbit is computed once, in arbitrary precision, by the client and shared
+ * with the tasks, which iterate every pixel in double precision relative to it; the cost per pixel is then about that of MandelbrotSetJob.
+ * The edge length must stay above about 1e-300, below which the distances between pixels underflow a double.
+ */
+public class DeepZoomMandelbrotJob implements Job<int[]> {
+
+	/** The real part of the center of the image. */
+	private BigDecimal centerReal;
+
+	/** The imaginary part of the center of the image. */
+	private BigDecimal centerImag;
+
+	/** The edge length of the square in the complex plane. */
+	private double edgeLength;
+
+	/** The numSquares denotes the number of pixels (n x n squares) representing the square region in the complex plane. */
+	private int numSquares;
+
+	/** The iteration limit that defines when the representative point of a region is considered to be in the Mandelbrot set. */
+	private int iterationLimit;
+
+	/** The key under which the reference orbit is shared with the tasks of this job. */
+	private String orbitKey;
+
+	/** Denotes the job start time. It used to record the time taken for execution of the task.*/
+	private long startTime;
+
+	/** The id under which the task of the job is put, unique to each run of the job. */
+	private String jobId;
+
+	/**
+	 * Instantiates a new deep zoom Mandelbrot set job.
+	 *
+	 * @param centerReal the real part of the center of the image, in decimal digits
+	 * @param centerImag the imaginary part of the center of the image, in decimal digits
+	 * @param edgeLength the edge length of the square in the complex plane
+	 * @param numSquares the number denoting the number of pixels (n x n squares) that represent the square region in the complex plane
+	 * @param iterationLimit the iteration limit
+	 */
+	public DeepZoomMandelbrotJob(String centerReal, String centerImag, double edgeLength, int numSquares, int iterationLimit){
+		this.centerReal = new BigDecimal(centerReal);
+		this.centerImag = new BigDecimal(centerImag);
+		this.edgeLength = edgeLength;
+		this.numSquares = numSquares;
+		this.iterationLimit = iterationLimit;
+	}
+
+	/**
+	 * Computes the orbit of the pixel at the center, which is the reference point of the tasks, and puts the task of the whole image.
+	 * @see jobs.Job#generateTasks(api.Space)
+	 */
+	@Override
+	public void generateTasks(Space space) {
+		System.out.println("Generate Tasks");
+		this.startTime = System.nanoTime();
+		double pixelSize = this.edgeLength / this.numSquares;
+		ReferenceOrbit orbit = new ReferenceOrbit(this.centerReal, this.centerImag, pixelSize, this.iterationLimit);
+		System.out.println("Reference orbit of " + orbit.getLength() + " points computed in " + (System.nanoTime() - this.startTime) + " ns");
+		this.orbitKey = "DeepZoomMandelbrotJob.orbit." + UUID.randomUUID();
+		DeepZoomMandelbrotTask task = new DeepZoomMandelbrotTask(this.orbitKey, pixelSize, this.numSquares, this.iterationLimit, 0, this.numSquares - 1);
+		this.jobId = "DeepZoomMandelbrotJob." + UUID.randomUUID();
+		try{
+			space.putSharedData(this.orbitKey, orbit);
+			space.put(this.jobId, task);
+		}
+		catch(RemoteException re){
+			re.printStackTrace();
+		}
+	}
+
+	/**
+	 * The result is laid out as that of MandelbrotSetJob: the 'k' value of the pixel at row i and column j is at count[i * numSquares + j],
+	 * where the rows go along the real axis and the columns along the imaginary axis.
+	 * @see jobs.Job#collectResults(api.Space)
+	 */
+	@Override
+	public int[] collectResults(Space space) {
+		int[] count = null;
+		try {
+			Result<MandelbrotTile> result = space.take(this.jobId);
+			long elapsedTime = System.nanoTime() - this.startTime;
+			System.out.println("Elapsed Time for the task: " + elapsedTime + " ns");
+			count = result.getTaskReturnValue().getCounts();
+		} catch (RemoteException e) {
+			e.printStackTrace();
+		} catch (InterruptedException e) {
+			e.printStackTrace();
+		} finally {
+			try {
+				space.removeSharedData(this.orbitKey);
+			} catch (RemoteException e) {
+				e.printStackTrace();
+			}
+		}
+		return count;
+	}
+
+}
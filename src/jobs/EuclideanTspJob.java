@@ -6,7 +6,9 @@ package jobs;
 import java.rmi.RemoteException;
 import java.util.Arrays;
 import java.util.Map;
+import java.util.UUID;
 
+import tasks.DistanceMatrix;
 import tasks.EuclideanTspTask;
 import api.Result;
 import api.Space;
@@ -19,15 +21,42 @@ public class EuclideanTspJob implements Job<int[]>{
 	/** The cities in 2D Euclidean plane that are part of the TSP. */
 	private double[][] cities;
 	
+	/** The key under which the distances between the cities are shared with the tasks of this job. */
+	private String distancesKey;
+	
+	/** The distances between the cities, computed once for the whole job. */
+	private DistanceMatrix distances;
+	
+	/** Whether the tasks search the tours with branch and bound. */
+	private boolean branchAndBound;
+	
+	/** The nearest-neighbour tour whose cost is the initial bound in branch-and-bound mode. */
+	private int[] initialTour;
+
+	/** The id under which the task of the job is put, unique to each run of the job. */
+	private String jobId;
+	
 	/**
 	 * Instantiates a new Euclidean TSP task.
 	 *
 	 * @param cities the cities in 2D Euclidean plane that are part of the TSP; it codes the x and y coordinates of city[i]: cities[i][0] is the x-coordinate of city[i] and cities[i][1] is the y-coordinate of city[i]
 	 */
 	public EuclideanTspJob(double[][] cities){
-		this.cities = cities;		
+		this(cities, false);
 	}	
 	
+	/**
+	 * Instantiates a new Euclidean TSP task.
+	 * In branch-and-bound mode, the search starts from the bound of a nearest-neighbour tour, which is also the answer if no shorter tour exists.
+	 *
+	 * @param cities the cities in 2D Euclidean plane that are part of the TSP
+	 * @param branchAndBound whether the tasks search the tours with branch and bound instead of enumerating all of them
+	 */
+	public EuclideanTspJob(double[][] cities, boolean branchAndBound){
+		this.cities = cities;
+		this.branchAndBound = branchAndBound;
+	}
+	
 	
 	/** Denotes the job start time. It used to record the time taken for execution of the task.*/
 	private long startTime;
@@ -45,11 +74,20 @@ public class EuclideanTspJob implements Job<int[]>{
 		for(int i = 0; i < permutation.length; i++){
 			permutation[i] = i + 1;
 		}
+		// The distances are computed and shipped once per job rather than with every task.
+		this.distancesKey = "EuclideanTspJob.distances." + UUID.randomUUID();
 		// The first task has level = 0
-		EuclideanTspTask task = new EuclideanTspTask(cities, prefix, permutation, 0);
+		EuclideanTspTask task = new EuclideanTspTask(distancesKey, prefix, permutation, 0, branchAndBound);
 		this.startTime = System.nanoTime();
+		this.distances = new DistanceMatrix(cities);
+		this.jobId = "EuclideanTspJob." + UUID.randomUUID();
 		try{
-			space.put(task);
+			space.putSharedData(distancesKey, distances);
+			if(branchAndBound){
+				this.initialTour = getNearestNeighbourTour();
+				space.updateUpperBound(distancesKey, distances.getTourCost(initialTour));
+			}
+			space.put(this.jobId, task);
 		}
 		catch(RemoteException e){
 			e.printStackTrace();
@@ -69,20 +107,49 @@ public class EuclideanTspJob implements Job<int[]>{
 		int[] minTour = null;		
 		Map<int[], Double> minTourMap = null;
 		try {
-			Result<Map<int[], Double>> result = space.take();
+			Result<Map<int[], Double>> result = space.take(this.jobId);
 			long elapsedTime = System.nanoTime() - this.startTime;
 			System.out.println("Elapsed Time for the task: " + elapsedTime + " ns");
 			minTourMap = result.getTaskReturnValue();
-			minTour = minTourMap.keySet().iterator().next();
+			// In branch-and-bound mode, no task reports a tour unless it beats the initial one.
+			minTour = minTourMap.isEmpty() ? initialTour : minTourMap.keySet().iterator().next();
 		} catch (RemoteException e) {
 			e.printStackTrace();
 		} catch (InterruptedException e) {
 			e.printStackTrace();
 		}catch(NullPointerException e){
 			e.printStackTrace();
+		} finally {
+			try {
+				space.removeSharedData(distancesKey);
+			} catch (RemoteException e) {
+				e.printStackTrace();
+			}
 		}
 		System.out.println("Min Tour: " + Arrays.toString(minTour));
 		return minTour;
 	}
 	
+	/**
+	 * Builds a tour by starting at city 0 and always moving on to the nearest city that is yet to be visited.
+	 *
+	 * @return the tour
+	 */
+	private int[] getNearestNeighbourTour(){
+		int[] tour = new int[cities.length];
+		boolean[] visited = new boolean[cities.length];
+		visited[0] = true;
+		for(int i = 1; i < tour.length; i++){
+			int nearest = -1;
+			for(int j = 0; j < cities.length; j++){
+				if(! visited[j] && (nearest == -1 || distances.get(tour[i - 1], j) < distances.get(tour[i - 1], nearest))){
+					nearest = j;
+				}
+			}
+			tour[i] = nearest;
+			visited[nearest] = true;
+		}
+		return tour;
+	}
+	
 }
@@ -4,6 +4,7 @@
 package jobs;
 
 import java.rmi.RemoteException;
+import java.util.UUID;
 
 import tasks.FibonacciTask;
 import utils.Constants;
@@ -21,6 +22,9 @@ public class FibonacciJob implements Job<Integer> {
 
 	/** Denotes the job start time. It used to record the time taken for execution of the task.*/
 	private long startTime; 
+
+	/** The id under which the task of the job is put, unique to each run of the job. */
+	private String jobId;
 	
 	/**
 	 * Instantiates a new fibonacci job.
@@ -38,8 +42,9 @@ public class FibonacciJob implements Job<Integer> {
 	public void generateTasks(Space space) {
 		FibonacciTask task = new FibonacciTask(n, Constants.CHILD_TASK);
 		this.startTime = System.nanoTime();
+		this.jobId = "FibonacciJob." + UUID.randomUUID();
 		try{
-			space.put(task);
+			space.put(this.jobId, task);
 		}
 		catch(RemoteException e){
 			e.printStackTrace();
@@ -54,7 +59,7 @@ public class FibonacciJob implements Job<Integer> {
 	public Integer collectResults(Space space) {
 		Result<Integer> result = null;
 		try {
-			result = space.take();
+			result = space.take(this.jobId);
 			long elapsedTime = System.nanoTime() - this.startTime;
 			System.out.println("Elapsed Time for the task: " + elapsedTime + " ns");
 		} catch (RemoteException e) {
@@ -0,0 +1,123 @@
+/*
+ * @author gautham
+ */
+package jobs;
+
+import java.rmi.RemoteException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+
+import tasks.DistanceMatrix;
+import tasks.HeldKarpTspTask;
+import api.Result;
+import api.Space;
+
+/**
+ * This class represents the work involved in solving a Euclidean Traveling Salesman Problem exactly with the Held-Karp dynamic program.
+ * It produces the same tour as EuclideanTspJob, but its cost grows with 2^n rather than with n!, which makes instances of 20 cities and more tractable.
+ * The tours are partitioned by the city that follows city 0, so each of the n-1 tasks of the base level runs the program over n-2 cities:
+ * the job costs about (n-1)/2 times a single program over all the cities.
+ * The memory of a task grows with 2^n as well: each task of the base level holds a table of (n-2) * 2^(n-2) doubles, about 170 MB with 22 cities and 1.5 GB with 25,
+ * and every worker of a Computer may be running one. The job refuses an instance whose tables would not fit in the heap of a Computer, rather than let the Computers run out of memory.
+ */
+public class HeldKarpTspJob implements Job<int[]>{
+
+	/** The cities in 2D Euclidean plane that are part of the TSP. */
+	private double[][] cities;
+
+	/** The key under which the distances between the cities are shared with the tasks of this job. */
+	private String distancesKey;
+
+	/** Denotes the job start time. It used to record the time taken for execution of the task.*/
+	private long startTime;
+
+	/** The id under which the task of the job is put, unique to each run of the job. */
+	private String jobId;
+
+	/**
+	 * Instantiates a new Held-Karp TSP job for Computers like this JVM: with its heap, and a worker for each of its cores, as ComputerImpl has by default.
+	 *
+	 * @param cities the cities in 2D Euclidean plane that are part of the TSP; cities[i][0] is the x-coordinate of city[i] and cities[i][1] is the y-coordinate of city[i]
+	 * @throws IllegalArgumentException if the tables of the tasks would not fit in the heap of a Computer
+	 */
+	public HeldKarpTspJob(double[][] cities){
+		this(cities, Runtime.getRuntime().availableProcessors(), Runtime.getRuntime().maxMemory());
+	}
+
+	/**
+	 * Instantiates a new Held-Karp TSP job.
+	 *
+	 * @param cities the cities in 2D Euclidean plane that are part of the TSP
+	 * @param numWorkers the number of workers of each Computer, each of which may hold the table of a task at the same time
+	 * @param heapSize the heap of each Computer in bytes
+	 * @throws IllegalArgumentException if the tables of the tasks would not fit in the heap of a Computer
+	 */
+	public HeldKarpTspJob(double[][] cities, int numWorkers, long heapSize){
+		long tableBytes = HeldKarpTspTask.getTableBytes(cities.length);
+		if(tableBytes < 0){
+			throw new IllegalArgumentException(cities.length + " cities are too many for Held-Karp: the table of a task would not fit in a Java array");
+		}
+		if(tableBytes > heapSize / numWorkers){
+			throw new IllegalArgumentException(String.format("%d cities need a Held-Karp table of %.0f MB per task, and %d workers hold %.0f MB of them at once, "
+					+ "more than the %.0f MB heap of a Computer: use fewer cities, fewer workers or a larger heap",
+					cities.length, tableBytes / 1e6, numWorkers, numWorkers * tableBytes / 1e6, heapSize / 1e6));
+		}
+		this.cities = cities;
+	}
+
+	/* (non-Javadoc)
+	 * @see jobs.Job#generateTasks(api.Space)
+	 */
+	@Override
+	public void generateTasks(Space space) {
+		// Every tour starts at city 0.
+		int[] prefix = {0};
+		int[] remaining = new int[cities.length - 1];
+		for(int i = 0; i < remaining.length; i++){
+			remaining[i] = i + 1;
+		}
+		this.distancesKey = "HeldKarpTspJob.distances." + UUID.randomUUID();
+		HeldKarpTspTask task = new HeldKarpTspTask(distancesKey, prefix, remaining, 0);
+		this.startTime = System.nanoTime();
+		this.jobId = "HeldKarpTspJob." + UUID.randomUUID();
+		try{
+			space.putSharedData(distancesKey, new DistanceMatrix(cities));
+			space.put(this.jobId, task);
+		}
+		catch(RemoteException e){
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Collects the minimal tour, in the same format as EuclideanTspJob.
+	 *
+	 * @param space the space
+	 * @return the minimal tour, starting at city 0
+	 */
+	@Override
+	public int[] collectResults(Space space) {
+		System.out.println("Collect Results");
+		int[] minTour = null;
+		try {
+			Result<Map<int[], Double>> result = space.take(this.jobId);
+			long elapsedTime = System.nanoTime() - this.startTime;
+			System.out.println("Elapsed Time for the task: " + elapsedTime + " ns");
+			minTour = result.getTaskReturnValue().keySet().iterator().next();
+		} catch (RemoteException e) {
+			e.printStackTrace();
+		} catch (InterruptedException e) {
+			e.printStackTrace();
+		} finally {
+			try {
+				space.removeSharedData(distancesKey);
+			} catch (RemoteException e) {
+				e.printStackTrace();
+			}
+		}
+		System.out.println("Min Tour: " + Arrays.toString(minTour));
+		return minTour;
+	}
+
+}
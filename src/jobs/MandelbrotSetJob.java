@@ -4,17 +4,19 @@
 package jobs;
 
 import java.rmi.RemoteException;
-import java.util.Map;
-import java.util.Map.Entry;
+import java.util.List;
+import java.util.UUID;
 
 import tasks.MandelbrotSetTask;
+import tasks.MandelbrotTile;
+import utils.Constants;
 import api.Result;
 import api.Space;
 
 /**
  * This class helps to produce a visualization of the some part of the Mandelbrot set which is probably one of the most well known fractals, and probably one of the most widely implemented fractal in fractal plotting programs.
  */
-public class MandelbrotSetJob implements Job<int[][]> {
+public class MandelbrotSetJob implements Job<int[]> {
 
 	/** The left corner coordinates of the square in the complex plane. */
 	private double[] leftCornerCoordinates;
@@ -31,6 +33,18 @@ public class MandelbrotSetJob implements Job<int[][]> {
 	
 	/** Denotes the job start time. It used to record the time taken for execution of the task.*/
 	private long startTime;
+
+	/** The id under which the task of the job is put, unique to each run of the job. */
+	private String jobId;
+	
+	/** How the image is decomposed into tasks. */
+	private int mode;
+	
+	/** The listener that sees the tiles as they arrive, or null if the tiles are not streamed. */
+	private TileListener listener;
+	
+	/** The key of the stream of tiles. */
+	private String streamKey;
 	
 	/**
 	 * Instantiates a new Mandelbrot set task.
@@ -41,10 +55,44 @@ public class MandelbrotSetJob implements Job<int[][]> {
 	 * @param iterationLimit the iteration limit that denotes the number of iterations to do before deciding that the representative point of a region is considered to be in the Mandelbrot set
 	 */
 	public MandelbrotSetJob(double[] leftCornerCoordinates, double edgeLength, int numSquares, int iterationLimit){
+		this(leftCornerCoordinates, edgeLength, numSquares, iterationLimit, Constants.MANDELBROTSET_MODE_ROWS);
+	}
+	
+	/**
+	 * Instantiates a new Mandelbrot set task.
+	 * In adaptive mode, the image is subdivided into rectangles, and a rectangle whose border has a single k value is filled without computing its interior.
+	 * This skips most of the work in large regions inside the set or in a single escape band, at the risk of missing a filament thinner than a pixel that crosses no border.
+	 * In tiled mode, the image is split into square tiles of roughly equal cost, as predicted by sampling each tile at a low resolution.
+	 *
+	 * @param leftCornerCoordinates the left corner coordinates of the square in the complex plane
+	 * @param edgeLength the edge length of the square in the complex plane
+	 * @param numSquares the number denoting the number of pixels (n x n squares) that represent the square region in the complex plane
+	 * @param iterationLimit the iteration limit
+	 * @param mode one of Constants.MANDELBROTSET_MODE_ROWS, MANDELBROTSET_MODE_ADAPTIVE and MANDELBROTSET_MODE_TILED
+	 */
+	public MandelbrotSetJob(double[] leftCornerCoordinates, double edgeLength, int numSquares, int iterationLimit, int mode){
+		this(leftCornerCoordinates, edgeLength, numSquares, iterationLimit, mode, null);
+	}
+	
+	/**
+	 * Instantiates a new Mandelbrot set task that streams its tiles.
+	 * The tiles are handed to the Client as soon as they reach the Space, rather than being assembled into a single tile up the tree of successors,
+	 * and the listener sees each of them as it arrives. collectResults still returns the whole image once every pixel has arrived.
+	 *
+	 * @param leftCornerCoordinates the left corner coordinates of the square in the complex plane
+	 * @param edgeLength the edge length of the square in the complex plane
+	 * @param numSquares the number denoting the number of pixels (n x n squares) that represent the square region in the complex plane
+	 * @param iterationLimit the iteration limit
+	 * @param mode one of Constants.MANDELBROTSET_MODE_ROWS, MANDELBROTSET_MODE_ADAPTIVE and MANDELBROTSET_MODE_TILED
+	 * @param listener the listener that sees the tiles as they arrive, or null to assemble the image in the Space
+	 */
+	public MandelbrotSetJob(double[] leftCornerCoordinates, double edgeLength, int numSquares, int iterationLimit, int mode, TileListener listener){
 		this.leftCornerCoordinates = leftCornerCoordinates;
 		this.edgeLength = edgeLength;
 		this.numSquares = numSquares;
 		this.iterationLimit = iterationLimit;		
+		this.mode = mode;
+		this.listener = listener;
 	}
 	
 
@@ -54,10 +102,15 @@ public class MandelbrotSetJob implements Job<int[][]> {
 	@Override
 	public void generateTasks(Space space) {
 		System.out.println("Generate Tasks");
-		MandelbrotSetTask task = new MandelbrotSetTask(this.leftCornerCoordinates, this.edgeLength, this.numSquares, this.iterationLimit, 0, this.numSquares - 1);
+		MandelbrotSetTask task = new MandelbrotSetTask(this.leftCornerCoordinates, this.edgeLength, this.numSquares, this.iterationLimit, 0, this.numSquares - 1, 0, this.numSquares - 1, this.mode);
+		if(this.listener != null){
+			this.streamKey = "MandelbrotSetJob.stream." + UUID.randomUUID();
+			task.setStreamKey(this.streamKey);
+		}
 		this.startTime = System.nanoTime();
+		this.jobId = "MandelbrotSetJob." + UUID.randomUUID();
 		try{
-			space.put(task);
+			space.put(this.jobId, task);
 		}
 		catch(RemoteException re){
 			re.printStackTrace();
@@ -66,24 +119,22 @@ public class MandelbrotSetJob implements Job<int[][]> {
 	}
 
 	/**
-	 * The result in the MandelbrotSet job is a Map of row number and the one-dimensional array that contains the 'k' values of for that row. 
+	 * The result in the MandelbrotSet job is a single tile covering all the rows, whose array is returned as it is.
+	 * The 'k' value of the pixel at row i and column j is at count[i * numSquares + j], where the rows go along the real axis and the columns along the imaginary axis.
 	 * @see jobs.Job#collectResults(api.Space)
 	 */
 	@Override
-	public int[][] collectResults(Space space) {
-		int[][] count = new int[this.numSquares][this.numSquares];
+	public int[] collectResults(Space space) {
+		if(this.listener != null){
+			return collectTiles(space);
+		}
+		int[] count = null;
 		
 		try {
-			Result<Map<Integer, int[]>> result = space.take();
+			Result<MandelbrotTile> result = space.take(this.jobId);
 			long elapsedTime = System.nanoTime() - this.startTime;
 			System.out.println("Elapsed Time for the task: " + elapsedTime + " ns");
-			for(Entry<Integer, int[]> entry : result.getTaskReturnValue().entrySet()){
-				int i = entry.getKey();
-				int[] values = entry.getValue();
-				for(int j = 0; j < values.length; j++){
-					count[i][this.numSquares - j - 1] = values[j];
-				}
-			}
+			count = result.getTaskReturnValue().getCounts();
 		} catch (RemoteException e) {
 			// TODO Auto-generated catch block
 			e.printStackTrace();
@@ -95,4 +146,52 @@ public class MandelbrotSetJob implements Job<int[][]> {
 		
 	}
 	
+	/**
+	 * Collects the streamed tiles into the image, handing each of them to the listener, until every pixel has arrived.
+	 * The final result of the job is then empty, and only confirms that the job has completed.
+	 *
+	 * @param space the space
+	 * @return the k values, laid out as those returned by collectResults
+	 */
+	private int[] collectTiles(Space space) {
+		int[] count = new int[this.numSquares * this.numSquares];
+		try {
+			long pixels = 0;
+			while(pixels < count.length){
+				List<Result<MandelbrotTile>> partials = space.takePartials(this.streamKey);
+				if(pixels == 0){
+					System.out.println("Time to the first tile: " + (System.nanoTime() - this.startTime) + " ns");
+				}
+				for(Result<MandelbrotTile> partial : partials){
+					MandelbrotTile tile = partial.getTaskReturnValue();
+					tile.copyTo(count, tile.getStartRow() * this.numSquares + tile.getStartColumn(), this.numSquares);
+					pixels += tile.getNumPixels();
+					this.listener.tileReady(tile);
+				}
+			}
+			space.take(this.jobId);
+			long elapsedTime = System.nanoTime() - this.startTime;
+			System.out.println("Elapsed Time for the task: " + elapsedTime + " ns");
+			space.closeStream(this.streamKey);
+		} catch (RemoteException e) {
+			e.printStackTrace();
+		} catch (InterruptedException e) {
+			e.printStackTrace();
+		}
+		return count;
+	}
+	
+	/**
+	 * Sees the tiles of a MandelbrotSetJob that streams them, as they arrive.
+	 */
+	public interface TileListener {
+		
+		/**
+		 * Called on the thread that collects the results, once for every tile.
+		 *
+		 * @param tile the tile
+		 */
+		void tileReady(MandelbrotTile tile);
+	}
+	
 }
@@ -0,0 +1,259 @@
+/*
+ * @author gautham
+ */
+package system;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import api.Result;
+import api.Task;
+
+/**
+ * A batch of the splits and the results produced by a Computer, sent to the Space in a single RMI call.
+ * The Space processes the splits before the results, so that a successor is always registered before the results of its sub-tasks arrive.
+ * A batch is written in a compact form of its own, without the descriptors of its lists and entries; the tasks are written as objects, and the results in place.
+ */
+public class Batch implements Externalizable {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The splits, each registering a successor task and the sub-tasks to be put in Space. */
+	private List<Split> splits = new ArrayList<Split>();
+
+	/** The results of the executed tasks, to be stored in Space. */
+	private List<Completion> results = new ArrayList<Completion>();
+
+	/**
+	 * Adds a split.
+	 *
+	 * @param <T> the generic type
+	 * @param parentTask the parent task
+	 * @param childTasks the child tasks that are to be put in Space
+	 * @param successorTask the successor task
+	 */
+	public <T> void addSplit(Task<T> parentTask, List<Task<T>> childTasks, Task<T> successorTask) {
+		splits.add(new Split(parentTask, new ArrayList<Task<?>>(childTasks), successorTask));
+	}
+
+	/**
+	 * Adds the result of an executed task. Only the result and the fields needed to route it to the successor are kept; the task itself is not sent.
+	 *
+	 * @param task the task
+	 */
+	public void addResult(Task<?> task) {
+		results.add(new Completion(task.getSuccessorTaskId(), task.getArgNo(), task.getResult(), task.getTaskRunTime()));
+	}
+
+	/**
+	 * Gets the splits.
+	 *
+	 * @return the splits
+	 */
+	public List<Split> getSplits() {
+		return splits;
+	}
+
+	/**
+	 * Gets the results of the executed tasks.
+	 *
+	 * @return the results
+	 */
+	public List<Completion> getResults() {
+		return results;
+	}
+
+	/**
+	 * Gets the number of splits and results in this batch.
+	 *
+	 * @return the size
+	 */
+	public int size() {
+		return splits.size() + results.size();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.Externalizable#writeExternal(java.io.ObjectOutput)
+	 */
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		out.writeInt(splits.size());
+		for(Split split : splits){
+			out.writeObject(split.parentTask);
+			out.writeInt(split.childTasks.size());
+			for(Task<?> childTask : split.childTasks){
+				out.writeObject(childTask);
+			}
+			out.writeObject(split.successorTask);
+		}
+		out.writeInt(results.size());
+		for(Completion completion : results){
+			out.writeLong(completion.successorTaskId);
+			out.writeInt(completion.argNo);
+			out.writeLong(completion.taskRunTime);
+			completion.result.writeExternal(out);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.Externalizable#readExternal(java.io.ObjectInput)
+	 */
+	@Override
+	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+		int numSplits = in.readInt();
+		for(int i = 0; i < numSplits; i++){
+			Task<?> parentTask = (Task<?>) in.readObject();
+			int numChildTasks = in.readInt();
+			List<Task<?>> childTasks = new ArrayList<Task<?>>(numChildTasks);
+			for(int j = 0; j < numChildTasks; j++){
+				childTasks.add((Task<?>) in.readObject());
+			}
+			splits.add(new Split(parentTask, childTasks, (Task<?>) in.readObject()));
+		}
+		int numResults = in.readInt();
+		for(int i = 0; i < numResults; i++){
+			long successorTaskId = in.readLong();
+			int argNo = in.readInt();
+			long taskRunTime = in.readLong();
+			Result<Object> result = new Result<Object>();
+			result.readExternal(in);
+			results.add(new Completion(successorTaskId, argNo, result, taskRunTime));
+		}
+	}
+
+	/**
+	 * The arguments of a single Computer2Space.storeTasks call.
+	 */
+	public static class Split implements Serializable {
+
+		/** The Constant serialVersionUID. */
+		private static final long serialVersionUID = 1L;
+
+		/** The parent task. */
+		private Task<?> parentTask;
+
+		/** The child tasks. */
+		private List<Task<?>> childTasks;
+
+		/** The successor task. */
+		private Task<?> successorTask;
+
+		/**
+		 * Instantiates a new split.
+		 *
+		 * @param parentTask the parent task
+		 * @param childTasks the child tasks
+		 * @param successorTask the successor task
+		 */
+		Split(Task<?> parentTask, List<Task<?>> childTasks, Task<?> successorTask) {
+			this.parentTask = parentTask;
+			this.childTasks = childTasks;
+			this.successorTask = successorTask;
+		}
+
+		/**
+		 * Gets the parent task.
+		 *
+		 * @return the parent task
+		 */
+		public Task<?> getParentTask() {
+			return parentTask;
+		}
+
+		/**
+		 * Gets the child tasks.
+		 *
+		 * @return the child tasks
+		 */
+		public List<Task<?>> getChildTasks() {
+			return childTasks;
+		}
+
+		/**
+		 * Gets the successor task.
+		 *
+		 * @return the successor task
+		 */
+		public Task<?> getSuccessorTask() {
+			return successorTask;
+		}
+	}
+
+	/**
+	 * The result of an executed task, along with the successor it is meant for.
+	 */
+	public static class Completion implements Serializable {
+
+		/** The Constant serialVersionUID. */
+		private static final long serialVersionUID = 1L;
+
+		/** The successor task id. */
+		private long successorTaskId;
+
+		/** The argument number of the task in the successor's input list. */
+		private int argNo;
+
+		/** The result. */
+		private Result<?> result;
+
+		/** The time taken to run the task on the computer. */
+		private long taskRunTime;
+
+		/**
+		 * Instantiates a new completion.
+		 *
+		 * @param successorTaskId the successor task id
+		 * @param argNo the argument number
+		 * @param result the result
+		 * @param taskRunTime the task run time
+		 */
+		Completion(long successorTaskId, int argNo, Result<?> result, long taskRunTime) {
+			this.successorTaskId = successorTaskId;
+			this.argNo = argNo;
+			this.result = result;
+			this.taskRunTime = taskRunTime;
+		}
+
+		/**
+		 * Gets the successor task id.
+		 *
+		 * @return the successor task id
+		 */
+		public long getSuccessorTaskId() {
+			return successorTaskId;
+		}
+
+		/**
+		 * Gets the argument number.
+		 *
+		 * @return the arg no
+		 */
+		public int getArgNo() {
+			return argNo;
+		}
+
+		/**
+		 * Gets the result.
+		 *
+		 * @return the result
+		 */
+		public Result<?> getResult() {
+			return result;
+		}
+
+		/**
+		 * Gets the task run time.
+		 *
+		 * @return the task run time
+		 */
+		public long getTaskRunTime() {
+			return taskRunTime;
+		}
+	}
+}
@@ -0,0 +1,146 @@
+/*
+ * @author gautham
+ */
+package system;
+
+import java.rmi.RemoteException;
+import java.util.List;
+
+import utils.Constants;
+import api.Task;
+
+/**
+ * Coalesces the splits and results produced by the worker threads of a Computer and sends them to the Space with Computer2Space.storeBatch.
+ * A batch is sent by a background thread once it holds Constants.BATCH_MAX_SIZE entries or once its first entry has waited for Constants.BATCH_LINGER milliseconds, whichever comes first.
+ * Batches are sent in the order they were filled.
+ */
+final class BatchFlusher extends Thread {
+
+	/** The space. */
+	private final Computer2Space space;
+
+	/** Records the round-trip time of each batch. */
+	private final GranularityController granularity;
+
+	/** The batch that is being filled. */
+	private Batch current = new Batch();
+
+	/** The time at which the first entry of the current batch was added. */
+	private long firstEntryTime;
+
+	/** Serializes the sending of batches so that they reach the Space in order. */
+	private final Object sendLock = new Object();
+
+	/**
+	 * Instantiates a new batch flusher.
+	 *
+	 * @param space the space
+	 * @param granularity the granularity controller that is told the round-trip time of each batch
+	 */
+	BatchFlusher(Computer2Space space, GranularityController granularity) {
+		this.space = space;
+		this.granularity = granularity;
+		setName("BatchFlusher");
+		setDaemon(true);
+	}
+
+	/**
+	 * Queues a split to be sent to the Space.
+	 *
+	 * @param <T> the generic type
+	 * @param parentTask the parent task
+	 * @param childTasks the child tasks that are to be put in Space
+	 * @param successorTask the successor task
+	 */
+	synchronized <T> void addSplit(Task<T> parentTask, List<Task<T>> childTasks, Task<T> successorTask) {
+		awaitRoom();
+		current.addSplit(parentTask, childTasks, successorTask);
+		added();
+	}
+
+	/**
+	 * Queues an executed task whose result is to be stored in Space.
+	 *
+	 * @param task the task
+	 */
+	synchronized void addResult(Task<?> task) {
+		awaitRoom();
+		current.addResult(task);
+		added();
+	}
+
+	/**
+	 * Sends whatever has been queued so far and returns once the Space has received it.
+	 */
+	void flush() {
+		synchronized (sendLock) {
+			Batch batch;
+			synchronized (this) {
+				if(current.size() == 0){
+					return;
+				}
+				batch = current;
+				current = new Batch();
+				notifyAll();
+			}
+			try {
+				long startTime = System.nanoTime();
+				space.storeBatch(batch);
+				granularity.recordRoundTrip(System.nanoTime() - startTime);
+			} catch (RemoteException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Keeps the producers from running too far ahead of a slow Space.
+	 */
+	private void awaitRoom() {
+		while(current.size() >= Constants.BATCH_MAX_SIZE * 4){
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Wakes up the flusher when the first entry of a batch has been added or when the batch is full.
+	 */
+	private void added() {
+		int size = current.size();
+		if(size == 1){
+			firstEntryTime = System.currentTimeMillis();
+			notifyAll();
+		} else if(size == Constants.BATCH_MAX_SIZE){
+			notifyAll();
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Thread#run()
+	 */
+	@Override
+	public void run() {
+		while (true) {
+			try {
+				synchronized (this) {
+					while(current.size() == 0){
+						wait();
+					}
+					long remaining = firstEntryTime + Constants.BATCH_LINGER - System.currentTimeMillis();
+					while(current.size() > 0 && current.size() < Constants.BATCH_MAX_SIZE && remaining > 0){
+						wait(remaining);
+						remaining = firstEntryTime + Constants.BATCH_LINGER - System.currentTimeMillis();
+					}
+				}
+				flush();
+			} catch (InterruptedException e) {
+				return;
+			}
+		}
+	}
+}
@@ -5,6 +5,7 @@ package system;
 
 import java.rmi.Remote;
 import java.rmi.RemoteException;
+import java.util.List;
 
 import api.Task;
 
@@ -27,6 +28,39 @@ public interface Computer extends Remote{
 	 */
 	public <T> void execute(Task<T> t) throws RemoteException;
 	
+	/**
+	 * Submits many tasks in a single call. The tasks are queued in the order given, ahead of the tasks that are already waiting on this Computer.
+	 *
+	 * @param tasks the tasks
+	 * @return the number of tasks queued on or being executed by this Computer, once the given tasks have been queued
+	 * @throws RemoteException the remote exception
+	 */
+	public int execute(List<Task<?>> tasks) throws RemoteException;
+	
+	/**
+	 * Removes the oldest task from this Computer's deque so that it can be executed by another Computer.
+	 *
+	 * @return the stolen task, or null if this Computer has no task waiting to be executed
+	 * @throws RemoteException the remote exception
+	 */
+	public Task<?> steal() throws RemoteException;
+	
+	/**
+	 * Gets the number of tasks queued on or being executed by this Computer. A load below the number of worker threads means that the Computer has run out of work.
+	 *
+	 * @return the load
+	 * @throws RemoteException the remote exception
+	 */
+	public int getLoad() throws RemoteException;
+	
+	/**
+	 * Gets the number of worker threads that execute tasks on this Computer.
+	 *
+	 * @return the number of worker threads
+	 * @throws RemoteException the remote exception
+	 */
+	public int getNumWorkers() throws RemoteException;
+	
 	/**
 	 * Stop the compute instance.
 	 *
@@ -35,6 +69,32 @@ public interface Computer extends Remote{
 	public void exit() throws RemoteException;
 	
 
+	/**
+	 * Evicts the shared data and the upper bound of a completed job from this Computer's caches.
+	 *
+	 * @param key the key
+	 * @throws RemoteException the remote exception
+	 */
+	public void evictSharedData(String key) throws RemoteException;
+	
+	
+	/**
+	 * Lowers this Computer's copy of the upper bound of a branch-and-bound job to a bound found elsewhere in the cluster.
+	 *
+	 * @param key the key of the job
+	 * @param bound the bound
+	 * @throws RemoteException the remote exception
+	 */
+	public void updateUpperBound(String key, double bound) throws RemoteException;
+	
+	/**
+	 * Sets the range from which the ids of the tasks created on this Computer are taken.
+	 *
+	 * @param range the id range assigned by the Space
+	 * @throws RemoteException the remote exception
+	 */
+	public void setTaskIdRange(long range) throws RemoteException;
+	
 	/**
 	 * Sets the remote reference to space.
 	 *
@@ -46,4 +46,41 @@ public interface Computer2Space extends Remote{
 	 */
 	<T> void storeResult(Task<T> task) throws RemoteException;    
 	
+	
+	/**
+	 * Stores many splits and results in a single call. The splits are stored before the results, each as if by storeTasks and storeResult.
+	 *
+	 * @param batch the batch
+	 * @throws RemoteException the remote exception
+	 */
+	void storeBatch(Batch batch) throws RemoteException;
+	
+	
+	/**
+	 * Gets the shared data registered under the given key, for the Computer to cache.
+	 *
+	 * @param key the key
+	 * @return the data, or null if there is none
+	 * @throws RemoteException the remote exception
+	 */
+	Object getSharedData(String key) throws RemoteException;
+	
+	
+	/**
+	 * Lowers the upper bound of a branch-and-bound job with a solution found by one of the tasks, and broadcasts it to all the Computers.
+	 *
+	 * @param key the key of the job
+	 * @param bound the bound
+	 * @throws RemoteException the remote exception
+	 */
+	void updateUpperBound(String key, double bound) throws RemoteException;
+	
+	/**
+	 * Gets the best upper bound known for a branch-and-bound job, for a Computer that has not received any yet.
+	 *
+	 * @param key the key of the job
+	 * @return the bound, or Double.MAX_VALUE if there is none
+	 * @throws RemoteException the remote exception
+	 */
+	double getUpperBound(String key) throws RemoteException;
 }
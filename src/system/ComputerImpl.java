@@ -6,91 +6,239 @@ package system;
 import java.rmi.Naming;
 import java.rmi.RemoteException;
 import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import utils.Constants;
+import api.Compression;
+import api.Result;
+import api.SharedBounds;
+import api.SharedData;
 import api.Space;
 import api.Task;
+import api.TaskIdGenerator;
 
 /**
  * This class enables different tasks to be executed by the Compute Space using its remote reference (proxy)
  * These tasks are run using the task's implementation of the execute method and the results are returned to the Compute Space.
  * Each task can either be executed right away or be decomposed into multiple tasks. In the earlier case, the result is stored in the space while in the latter case, the subtasks are stored.
+ *
+ * As in Cilk, every Computer owns a deque of ready tasks. The worker threads push and pop the sub-tasks they create at the head of the deque (LIFO),
+ * while the Space steals tasks from the tail of the deque (FIFO) on behalf of the Computers that have run out of work.
  */
 public final class ComputerImpl extends UnicastRemoteObject implements Computer{
-	
+
 	/** The Constant serialVersionUID. */
 	private static final long serialVersionUID = 1L;
 
 	/** The space. */
-	private Computer2Space space;	
-	
+	private Computer2Space space;
+
+	/** The deque of tasks that are ready to be executed on this Computer. */
+	private BlockingDeque<Task<?>> localTasks;
+
+	/** The maximum number of tasks that may be queued before the Space is made to wait in execute. */
+	private int admissionLimit;
+
+	/** The lock on which the Space waits while the local deque is full. */
+	private final Object admissionLock = new Object();
+
+	/** The number of worker threads. */
+	private int numWorkers;
+
+	/** The number of worker threads that are currently executing a task. */
+	private AtomicInteger busyWorkers = new AtomicInteger();
+
+	/** The fork/join pool in which the sub-trees of small tasks are expanded and joined. */
+	private ForkJoinPool localPool;
+
+	/** Decides which tasks are small enough to be executed locally. */
+	private GranularityController granularity = new GranularityController();
+
+	/** Coalesces the splits and results that are sent to the Space. */
+	private BatchFlusher flusher;
+
+	/**
+	 * Instantiates a new implementation object for the Computer Interface.
+	 * The number of worker threads defaults to the number of available cores.
+	 *
+	 * @throws RemoteException the remote exception
+	 */
+	public ComputerImpl() throws RemoteException{
+		this(Runtime.getRuntime().availableProcessors(), Constants.COMPUTER_ADMISSION_LIMIT);
+	}
+
 	/**
 	 * Instantiates a new implementation object for the Computer Interface.
 	 *
+	 * @param numWorkers the number of worker threads that execute the tasks
+	 * @param admissionLimit the maximum number of tasks that may wait for a worker; once reached, execute blocks the caller until a worker frees up
 	 * @throws RemoteException the remote exception
 	 */
-	public ComputerImpl() throws RemoteException{		
+	public ComputerImpl(int numWorkers, int admissionLimit) throws RemoteException{
+		this.numWorkers = numWorkers;
+		this.admissionLimit = admissionLimit;
+		this.localTasks = new LinkedBlockingDeque<Task<?>>();
+		this.localPool = new ForkJoinPool(numWorkers);
+		for(int i = 0; i < numWorkers; i++){
+			Thread worker = new Worker();
+			worker.setName("Worker-" + i);
+			worker.setDaemon(true);
+			worker.start();
+		}
+		System.out.println("Computer running " + numWorkers + " worker threads.");
 	}
 
 	/**
 	 * Different tasks can be submitted to this method
-	 * The function checks to see if the task can be executed.
-	 * If the task is ready, then it's executed and the intermediate results are stored in Space. Otherwise, the task is split into multiple subtasks and are put in Space.
-	 * 
+	 * The task is put at the head of the local deque from where it is picked up by one of the worker threads.
+	 * If the deque already holds admissionLimit tasks, the caller waits until the workers catch up.
+	 *
 	 * @param <T> the generic type
 	 * @param t the Task object
-	 * @return Result the return value of the Task object's execute method
 	 * @throws RemoteException the remote exception
-	 */	
+	 */
 	@Override
 	public <T> void execute(final Task<T> t) throws RemoteException {
+		synchronized (admissionLock) {
+			awaitAdmission(1);
+			localTasks.addFirst(t);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see system.Computer#execute(java.util.List)
+	 */
+	@Override
+	public int execute(List<Task<?>> tasks) throws RemoteException {
+		// A batch is admitted as a whole, so that it never takes the deque past admissionLimit; one larger than that is admitted in chunks of admissionLimit,
+		// the last ones first, so that the first task still ends up at the head of the deque.
+		for(int end = tasks.size(); end > 0; ){
+			int start = Math.max(0, end - admissionLimit);
+			synchronized (admissionLock) {
+				awaitAdmission(end - start);
+				for(int i = end - 1; i >= start; i--){
+					localTasks.addFirst(tasks.get(i));
+				}
+			}
+			end = start;
+		}
+		return getLoad();
+	}
+
+	/**
+	 * Blocks the caller until count more tasks fit in the local deque without taking it past admissionLimit.
+	 * The caller holds the lock on admissionLock, so that no other caller is admitted between the wait and the queuing of its tasks.
+	 *
+	 * @param count the number of tasks to be queued, at most admissionLimit
+	 * @throws RemoteException if the caller is interrupted
+	 */
+	private void awaitAdmission(int count) throws RemoteException {
+		while(localTasks.size() + count > admissionLimit){
+			try {
+				admissionLock.wait();
+			} catch (InterruptedException e) {
+				throw new RemoteException("Interrupted while waiting for admission", e);
+			}
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see system.Computer#steal()
+	 */
+	@Override
+	public Task<?> steal() throws RemoteException {
+		// The oldest task sits at the tail of the deque; it is the one closest to the root and hence the largest.
+		Task<?> t = localTasks.pollLast();
+		if(t != null){
+			// The successor of the stolen task may still be waiting in the current batch; the Space must have it before the thief can finish the task.
+			flusher.flush();
+		}
+		return t;
+	}
+
+	/* (non-Javadoc)
+	 * @see system.Computer#getLoad()
+	 */
+	@Override
+	public int getLoad() throws RemoteException {
+		return localTasks.size() + busyWorkers.get();
+	}
 
+	/**
+	 * Enables or disables the local execution of small sub-trees. With it disabled, every task that can be split is split and its sub-tasks
+	 * and successor go through the Space, which is what a stress test of the Space wants.
+	 *
+	 * @param enabled true to let small sub-trees be executed locally, the default
+	 */
+	public void setLocalExecution(boolean enabled) {
+		granularity.setEnabled(enabled);
+	}
+
+	/* (non-Javadoc)
+	 * @see system.Computer#getNumWorkers()
+	 */
+	@Override
+	public int getNumWorkers() throws RemoteException {
+		return numWorkers;
+	}
+
+	/**
+	 * Runs the given task on the calling worker thread.
+	 * If the task can be split, the successor is registered with the Space and the sub-tasks are pushed on the local deque,
+	 * unless the sub-tree of the task is small enough to be executed right here. Otherwise, the task is executed and its result is stored in Space.
+	 *
+	 * @param <T> the generic type
+	 * @param t the task
+	 */
+	private <T> void process(Task<T> t) {
 		// If it's a regular task and if the base condition is not set (the task can be split into sub-tasks)
-		final boolean canSplitTask = (t.getTaskType() == Constants.CHILD_TASK && ! t.isBaseCondition());
-		
-		//System.out.println("Computer: Elapsed time for task " + (result.getTaskId() + 1) + ": " + elapsedTime + " ms");
-		
-		// Creating a new thread for storing the tasks/results in Space so that the computer doesn't have to wait for the RMI call to return.
-		Thread thread = new Thread() {
-			@Override
-			public void run() {
-				long elapsedTime = 0;
-					if (canSplitTask) {
-						// Split the task into 'n' sub-tasks and 1 successor task and put them all in Space.
-						long startTime = System.nanoTime();
-						
-						List<Task<T>> tasks = t.splitTask();
-						Task<T> successorTask = t.createSuccessorTask();
-						
-						long endTime = System.nanoTime();
-						elapsedTime = endTime - startTime;
-						t.setTaskRunTime(elapsedTime);
-						try {
-							space.storeTasks(t, tasks, successorTask);
-						} catch (RemoteException e) {							
-							e.printStackTrace();
-						}
-					} else { // Execute the task and store the result on the Space
-						long startTime = System.nanoTime();
-						t.execute();
-						long endTime = System.nanoTime();
-						elapsedTime = endTime - startTime;
-						t.setTaskRunTime(elapsedTime);
-						try {
-							space.storeResult(t);
-						} catch (RemoteException e) {							
-							e.printStackTrace();
-						}
-					}
-					
-					
+		boolean canSplitTask = (t.getTaskType() == Constants.CHILD_TASK && ! t.isBaseCondition());
+		long elapsedTime = 0;
+		if (canSplitTask && ! granularity.shouldExecuteLocally(t)) {
+			// Split the task into 'n' sub-tasks and 1 successor task.
+			long startTime = System.nanoTime();
+
+			List<Task<T>> tasks = t.splitTask();
+			Task<T> successorTask = t.createSuccessorTask();
+
+			long endTime = System.nanoTime();
+			elapsedTime = endTime - startTime;
+			t.setTaskRunTime(elapsedTime);
+
+			// The successor is queued before any of the sub-tasks can be executed here, so that it reaches the Space ahead of their results.
+			flusher.addSplit(t, new ArrayList<Task<T>>(0), successorTask);
+			// Push the sub-tasks in reverse order so that the first one is popped first.
+			for(int i = tasks.size() - 1; i >= 0; i--){
+				Task<T> task = tasks.get(i);
+				task.setSuccessorTaskId(successorTask.getTaskId());
+				localTasks.addFirst(task);
+			}
+		} else { // Execute the task (or its whole sub-tree) and store the result on the Space
+			// Executing a task may consume the state its estimate is based on.
+			long cost = t.getCostEstimate();
+			long startTime = System.nanoTime();
+			if(canSplitTask){
+				t.setResult(localPool.invoke(new LocalExecution<T>(t)));
+			}
+			else{
+				t.execute();
 			}
-		};
-		thread.start();			
+			long endTime = System.nanoTime();
+			elapsedTime = endTime - startTime;
+			t.setTaskRunTime(elapsedTime);
+			// A successor only combines its inputs, so its running time says nothing about the cost of a sub-tree.
+			if(t.getTaskType() == Constants.CHILD_TASK){
+				granularity.recordExecution(t.getClass(), cost, elapsedTime);
+			}
+			flusher.addResult(t);
+		}
 	}
-	
-	
 
 	/* (non-Javadoc)
 	 * @see system.Computer#stop()
@@ -98,7 +246,11 @@ public final class ComputerImpl extends UnicastRemoteObject implements Computer{
 	@Override
 	public void exit() throws RemoteException {
 		System.out.println("Received command to stop.");
-		System.exit(0);		
+		String compression = Compression.report();
+		if(compression != null){
+			System.out.println(compression);
+		}
+		System.exit(0);
 	}
 
 	/**
@@ -107,26 +259,157 @@ public final class ComputerImpl extends UnicastRemoteObject implements Computer{
 	 * @param args the arguments
 	 * @throws Exception the exception
 	 */
-	public static void main(String[] args) throws Exception {		
+	public static void main(String[] args) throws Exception {
 		String spaceDomainName = args[0];
-		
-		String spaceURL = "//" + spaceDomainName + "/" + Space.SERVICE_NAME;		
-		Computer2Space remoteSpace = (Computer2Space) Naming.lookup(spaceURL);
-		
-		Computer computer = new ComputerImpl();
-		remoteSpace.register(computer);
+		// The optional second argument overrides the number of worker threads.
+		int numWorkers = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+		Computer computer = new ComputerImpl(numWorkers, Constants.COMPUTER_ADMISSION_LIMIT);
+		Computer2Space remoteSpace;
+		// With -Dtransport=nio, the Computer talks to the Space over a single NIO connection instead of RMI.
+		if("nio".equals(System.getProperty("transport"))){
+			remoteSpace = NioTransport.connect(spaceDomainName, Constants.NIO_PORT, computer);
+		}
+		else{
+			String spaceURL = "//" + spaceDomainName + "/" + Space.SERVICE_NAME;
+			remoteSpace = (Computer2Space) Naming.lookup(spaceURL);
+		}
 		computer.setSpace(remoteSpace);
+		remoteSpace.register(computer);
 		System.out.println("Computer ready.");
 	}
-	
+
+
+	/* (non-Javadoc)
+	 * @see system.Computer#evictSharedData(java.lang.String)
+	 */
+	@Override
+	public void evictSharedData(String key) throws RemoteException {
+		SharedData.evict(key);
+		SharedBounds.evict(key);
+	}
+
+	/* (non-Javadoc)
+	 * @see system.Computer#updateUpperBound(java.lang.String, double)
+	 */
+	@Override
+	public void updateUpperBound(String key, double bound) throws RemoteException {
+		SharedBounds.accept(key, bound);
+	}
+
+	/* (non-Javadoc)
+	 * @see system.Computer#setTaskIdRange(long)
+	 */
+	@Override
+	public void setTaskIdRange(long range) throws RemoteException {
+		TaskIdGenerator.assignRange(range);
+	}
 
 	/* (non-Javadoc)
 	 * @see system.Computer#setSpace(system.Computer2Space)
 	 */
 	@Override
-	public void setSpace(Computer2Space space) throws Exception {
-		this.space = space;		
+	public void setSpace(final Computer2Space space) throws Exception {
+		this.space = space;
+		// The shared data of a job is fetched from the Space the first time one of its tasks needs it.
+		SharedData.setLoader(new SharedData.Loader() {
+			@Override
+			public Object load(String key) throws Exception {
+				return space.getSharedData(key);
+			}
+		});
+		// The bounds found by the local tasks are broadcast through the Space.
+		SharedBounds.setChannel(new SharedBounds.Channel() {
+			@Override
+			public double fetch(String key) throws Exception {
+				return space.getUpperBound(key);
+			}
+
+			@Override
+			public void publish(String key, double bound) throws Exception {
+				space.updateUpperBound(key, bound);
+			}
+		});
+		this.flusher = new BatchFlusher(space, granularity);
+		this.flusher.start();
+	}
+
+	/**
+	 * A worker thread that loops forever, popping tasks from the head of the local deque and processing them.
+	 */
+	private class Worker extends Thread {
+
+		/* (non-Javadoc)
+		 * @see java.lang.Thread#run()
+		 */
+		@Override
+		public void run() {
+			while (true) {
+				Task<?> t;
+				try {
+					t = localTasks.takeFirst();
+				} catch (InterruptedException e) {
+					return;
+				}
+				if(localTasks.size() < admissionLimit){
+					synchronized (admissionLock) {
+						admissionLock.notifyAll();
+					}
+				}
+				busyWorkers.incrementAndGet();
+				try {
+					process(t);
+				} catch (RuntimeException e) {
+					e.printStackTrace();
+				} finally {
+					busyWorkers.decrementAndGet();
+				}
+			}
+		}
 	}
-	
-	
+
+	/**
+	 * Expands and joins the sub-tree of a task within the fork/join pool, without going through the Space.
+	 *
+	 * @param <T> the generic type
+	 */
+	private static class LocalExecution<T> extends RecursiveTask<Result<T>> {
+
+		/** The Constant serialVersionUID. */
+		private static final long serialVersionUID = 1L;
+
+		/** The task. */
+		private Task<T> task;
+
+		/**
+		 * Instantiates a new local execution.
+		 *
+		 * @param task the task
+		 */
+		LocalExecution(Task<T> task) {
+			this.task = task;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.util.concurrent.RecursiveTask#compute()
+		 */
+		@Override
+		protected Result<T> compute() {
+			if(task.getTaskType() != Constants.CHILD_TASK || task.isBaseCondition()){
+				return task.execute();
+			}
+			List<Task<T>> tasks = task.splitTask();
+			Task<T> successorTask = task.createSuccessorTask();
+			List<LocalExecution<T>> executions = new ArrayList<LocalExecution<T>>(tasks.size());
+			for(Task<T> t : tasks){
+				executions.add(new LocalExecution<T>(t));
+			}
+			invokeAll(executions);
+			for(LocalExecution<T> execution : executions){
+				successorTask.setInput(execution.task.getArgNo(), execution.join().getTaskReturnValue());
+			}
+			return successorTask.execute();
+		}
+	}
+
 }
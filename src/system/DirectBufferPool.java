@@ -0,0 +1,106 @@
+/*
+ * @author gautham
+ */
+package system;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import api.Codecs;
+
+/**
+ * A pool of the direct buffers into which the NIO transport copies the large int arrays of a frame, to be written to the socket straight from them.
+ * The buffers come in sizes that are powers of two, from MIN_SIZE up; a few of each size are kept for reuse, up to MAX_POOLED_BYTES in all.
+ * A request larger than MAX_SIZE gets a buffer of its own, which is left to the garbage collector when it is released.
+ */
+final class DirectBufferPool {
+
+	/** The log2 of the smallest buffer. */
+	private static final int MIN_SHIFT = 14;
+
+	/** The log2 of the largest buffer that is pooled. */
+	private static final int MAX_SHIFT = 26;
+
+	/** The size of the smallest buffer. */
+	static final int MIN_SIZE = 1 << MIN_SHIFT;
+
+	/** The size of the largest buffer that is pooled. */
+	static final int MAX_SIZE = 1 << MAX_SHIFT;
+
+	/** The number of buffers of each size that are kept for reuse. */
+	private static final int BUFFERS_PER_SIZE = 8;
+
+	/** The most bytes that the free buffers may hold in all; full lists of every size would pin about 1 GB of native memory. */
+	private static final long MAX_POOLED_BYTES = 64L << 20;
+
+	/** The bytes held by the free buffers. */
+	private static final AtomicLong pooledBytes = new AtomicLong();
+
+	/** The free buffers, by log2 of their size less MIN_SHIFT. */
+	private static final BlockingQueue<ByteBuffer>[] free = newFreeLists();
+
+	/**
+	 * Not to be instantiated.
+	 */
+	private DirectBufferPool() {
+	}
+
+	/**
+	 * Creates the free lists.
+	 *
+	 * @return the free lists
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private static BlockingQueue<ByteBuffer>[] newFreeLists() {
+		BlockingQueue<ByteBuffer>[] lists = new BlockingQueue[MAX_SHIFT - MIN_SHIFT + 1];
+		for(int i = 0; i < lists.length; i++){
+			lists[i] = new ArrayBlockingQueue<ByteBuffer>(BUFFERS_PER_SIZE);
+		}
+		return lists;
+	}
+
+	/**
+	 * Gets a direct buffer in the byte order of Codecs, with its position at 0 and its limit at size.
+	 *
+	 * @param size the number of bytes needed
+	 * @return the buffer, to be given back with release once its contents have been written
+	 */
+	static ByteBuffer acquire(int size) {
+		ByteBuffer buffer = null;
+		if(size <= MAX_SIZE){
+			int shift = Math.max(MIN_SHIFT, 32 - Integer.numberOfLeadingZeros(size - 1));
+			buffer = free[shift - MIN_SHIFT].poll();
+			if(buffer == null){
+				buffer = ByteBuffer.allocateDirect(1 << shift);
+			}
+			else{
+				pooledBytes.addAndGet(-buffer.capacity());
+			}
+		}
+		else{
+			buffer = ByteBuffer.allocateDirect(size);
+		}
+		buffer.clear();
+		buffer.limit(size);
+		buffer.order(Codecs.BYTE_ORDER);
+		return buffer;
+	}
+
+	/**
+	 * Gives back a buffer got from acquire; the pool keeps it if it has room for another of its size and the total stays within MAX_POOLED_BYTES.
+	 *
+	 * @param buffer the buffer
+	 */
+	static void release(ByteBuffer buffer) {
+		int size = buffer.capacity();
+		if(size < MIN_SIZE || size > MAX_SIZE || Integer.bitCount(size) != 1){
+			return;
+		}
+		// The bytes are reserved before the buffer is offered, so that concurrent releases cannot overshoot the cap.
+		if(pooledBytes.addAndGet(size) > MAX_POOLED_BYTES || ! free[Integer.numberOfTrailingZeros(size) - MIN_SHIFT].offer(buffer)){
+			pooledBytes.addAndGet(-size);
+		}
+	}
+}
@@ -0,0 +1,80 @@
+/*
+ * @author gautham
+ */
+package system;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import utils.Constants;
+import api.Task;
+
+/**
+ * Decides whether the sub-tree of a task is small enough to be expanded and joined on the Computer instead of being distributed through the Space.
+ * The cost estimate of each task class is calibrated against the measured execution times of its tasks, and the threshold follows the measured latency of the RMI calls to the Space.
+ */
+final class GranularityController {
+
+	/** The weight of a new sample in the exponentially weighted moving averages. */
+	private static final double SMOOTHING = 0.2;
+
+	/** The measured time in nanoseconds of one unit of cost estimate, per task class. */
+	private final Map<Class<?>, Double> nanosPerCostUnit = new ConcurrentHashMap<Class<?>, Double>();
+
+	/** The measured round-trip time in nanoseconds of an RMI call to the Space; negative until measured. */
+	private volatile double roundTripTime = -1;
+
+	/** Whether sub-trees may be executed locally at all. */
+	private volatile boolean enabled = true;
+
+	/**
+	 * Enables or disables local execution; while it is disabled every task that can be split is distributed through the Space.
+	 *
+	 * @param enabled true to let small sub-trees be executed locally
+	 */
+	void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * Records the time taken by an RMI call to the Space.
+	 *
+	 * @param elapsedTime the elapsed time in nanoseconds
+	 */
+	void recordRoundTrip(long elapsedTime) {
+		double current = this.roundTripTime;
+		this.roundTripTime = current < 0 ? elapsedTime : current + SMOOTHING * (elapsedTime - current);
+	}
+
+	/**
+	 * Records the time taken to execute the sub-tree of a task.
+	 *
+	 * @param taskClass the class of the task
+	 * @param cost the cost estimate of the task, taken before it was executed
+	 * @param elapsedTime the elapsed time in nanoseconds
+	 */
+	void recordExecution(Class<?> taskClass, long cost, long elapsedTime) {
+		if(cost <= 0){
+			return;
+		}
+		double sample = (double) elapsedTime / cost;
+		Double current = nanosPerCostUnit.get(taskClass);
+		nanosPerCostUnit.put(taskClass, current == null ? sample : current + SMOOTHING * (sample - current));
+	}
+
+	/**
+	 * Checks if the task should be executed locally. That is the case once its predicted running time drops below
+	 * Constants.LOCAL_EXECUTION_FACTOR round trips to the Space. Until both have been measured, or while local execution is disabled, every task is distributed.
+	 *
+	 * @param task the task
+	 * @return true, if the sub-tree of the task should be executed on this Computer
+	 */
+	boolean shouldExecuteLocally(Task<?> task) {
+		Double nanosPerUnit = nanosPerCostUnit.get(task.getClass());
+		double latency = this.roundTripTime;
+		if(!enabled || nanosPerUnit == null || latency < 0){
+			return false;
+		}
+		return task.getCostEstimate() * nanosPerUnit <= Constants.LOCAL_EXECUTION_FACTOR * latency;
+	}
+}
@@ -0,0 +1,845 @@
+/*
+ * @author gautham
+ */
+package system;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.rmi.ConnectException;
+import java.rmi.MarshalException;
+import java.rmi.RemoteException;
+import java.rmi.UnmarshalException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import utils.Constants;
+import api.Codecs;
+import api.Compression;
+
+/**
+ * One end of a connection of the NIO transport between the Space and a Computer.
+ * The connection carries the calls of both ends in both directions: each end serves the calls on its service object, such as the SpaceImpl,
+ * and makes calls on the service of the other end through a proxy that implements the remote interface, such as Computer2Space.
+ *
+ * Every message is a frame: its length, its kind (CALL, REPLY, FAILURE or HELLO), the id of the call it belongs to, and its payload, which is written with Java serialization.
+ * The large int arrays of the payload, such as the k values of a MandelbrotTile, are not copied into the stream: they are copied once, into pooled direct buffers
+ * that follow the stream in the frame and go to the socket in the same gathering write. The other end reads them as views of the frame it has read.
+ * Each end opens with a HELLO frame that lists the compressions it reads; from then on the other end compresses the int arrays it sends
+ * with the compression of its JVM if this end reads it, and sends them as they are otherwise.
+ * Any number of threads may have calls outstanding at once; the replies are matched to the calls by their ids, in whatever order they come back.
+ * A frame is written by the thread that sends it, unless another thread is writing already, in which case the frames queued meanwhile go out together in a single gathering write;
+ * the reactor only writes what the channel could not take at once.
+ *
+ * A reference to the service of either end travels as a token, which the other end resolves to its proxy.
+ * This is how Computer2Space.register hands the Computer to the Space; the Space it returns arrives as null, since the proxy does not implement Space.
+ * Unlike RMI, the transport does not download classes from a codebase: the classes of the tasks have to be on the class path of both ends.
+ */
+final class NioConnection implements NioReactor.Handler, InvocationHandler {
+
+	/** The kind of a frame that calls a method of the service of the other end. */
+	private static final byte CALL = 0;
+
+	/** The kind of a frame that carries the return value of a call. */
+	private static final byte REPLY = 1;
+
+	/** The kind of a frame that carries the exception thrown by a call. */
+	private static final byte FAILURE = 2;
+
+	/** The kind of the frame that each end sends first, with the compressions it reads. */
+	private static final byte HELLO = 3;
+
+	/** The size of the header of a frame: the length of the rest of the frame, the kind, the call id and the length of the stream, which the int arrays follow. */
+	private static final int HEADER_SIZE = 4 + 1 + 8 + 4;
+
+	/** The initial capacity of the buffer into which frames are read. */
+	private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+	/** The threads on which the calls of the other ends are served, so that a call that blocks, such as Computer.execute, never holds up the reactor. */
+	private static final ExecutorService SERVERS = Executors.newCachedThreadPool(new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, "NioServer");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+
+	/** The channel. */
+	private final SocketChannel channel;
+
+	/** The address of the other end, for the messages. */
+	private final String peer;
+
+	/** The reactor that does the I/O of the channel. */
+	private final NioReactor reactor;
+
+	/** The key of the channel, which is only touched by the reactor thread. */
+	private SelectionKey key;
+
+	/** The object whose methods the other end calls. */
+	private final Object service;
+
+	/** The methods of the interface of the service, indexed by their ids. */
+	private final Method[] serviceMethods;
+
+	/** The ids of the methods of the interface of the service of the other end. */
+	private final Map<Method, Integer> remoteMethodIds = new HashMap<Method, Integer>();
+
+	/** The proxy through which the service of the other end is called. */
+	private final Object proxy;
+
+	/** The calls that are waiting for their replies, by call id. */
+	private final Map<Long, PendingCall> pendingCalls = new ConcurrentHashMap<Long, PendingCall>();
+
+	/** The id of the next call. */
+	private final AtomicLong nextCallId = new AtomicLong();
+
+	/** The frames that are waiting to be written. */
+	private final Queue<ByteBuffer[]> outbox = new ConcurrentLinkedQueue<ByteBuffer[]>();
+
+	/** Whether a thread is writing the frames of the outbox, or the reactor has been left to write them; only its holder writes unwritten. */
+	private final AtomicBoolean writing = new AtomicBoolean();
+
+	/** The buffers of the frames that have been taken from the outbox but not yet written in full; guarded by its own lock, which the writer only contends for with the closing of the connection. */
+	private final ArrayDeque<ByteBuffer> unwritten = new ArrayDeque<ByteBuffer>();
+
+	/** The buffer into which frames are read. */
+	private ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+
+	/** The compression of the int arrays sent to the other end, agreed on when its HELLO frame arrives. */
+	private volatile int compression = Compression.NONE;
+
+	/** The cause of the closing of the connection, or null while it is open. */
+	private volatile IOException closeCause;
+
+	/**
+	 * Instantiates a new connection; start has to be called before it is used.
+	 *
+	 * @param channel the connected channel, in non-blocking mode
+	 * @param reactor the reactor that does the I/O of the channel
+	 * @param service the object whose methods the other end calls
+	 * @param serviceInterface the interface of the service
+	 * @param remoteInterface the interface of the service of the other end
+	 */
+	NioConnection(SocketChannel channel, NioReactor reactor, Object service, Class<?> serviceInterface, Class<?> remoteInterface) {
+		this.channel = channel;
+		this.peer = String.valueOf(channel.socket().getRemoteSocketAddress());
+		this.reactor = reactor;
+		this.service = service;
+		this.serviceMethods = methodTable(serviceInterface);
+		Method[] remoteMethods = methodTable(remoteInterface);
+		for(int i = 0; i < remoteMethods.length; i++){
+			remoteMethodIds.put(remoteMethods[i], i);
+		}
+		this.proxy = Proxy.newProxyInstance(remoteInterface.getClassLoader(), new Class<?>[] {remoteInterface}, this);
+	}
+
+	/**
+	 * Lists the methods of an interface in an order that both ends agree on, so that a method can be called by its index.
+	 *
+	 * @param type the interface
+	 * @return the methods
+	 */
+	private static Method[] methodTable(Class<?> type) {
+		Method[] methods = type.getMethods();
+		Arrays.sort(methods, new Comparator<Method>() {
+			@Override
+			public int compare(Method a, Method b) {
+				return signature(a).compareTo(signature(b));
+			}
+		});
+		return methods;
+	}
+
+	/**
+	 * Gets the name and parameter types of a method.
+	 *
+	 * @param method the method
+	 * @return the signature
+	 */
+	private static String signature(Method method) {
+		return method.getName() + Arrays.toString(method.getParameterTypes());
+	}
+
+	/**
+	 * Gets the proxy through which the service of the other end is called.
+	 *
+	 * @return the proxy
+	 */
+	Object getProxy() {
+		return proxy;
+	}
+
+	/**
+	 * Registers the channel with the reactor, after which frames are read and written, and tells the other end which compressions this end reads.
+	 */
+	void start() {
+		reactor.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					key = channel.register(reactor.getSelector(), SelectionKey.OP_READ, NioConnection.this);
+				} catch (ClosedChannelException e) {
+					failed(e);
+				}
+			}
+		});
+		try {
+			send(new Frame(HELLO, 0, Integer.valueOf(Compression.SUPPORTED)).seal());
+		} catch (IOException e) {
+			failed(e);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see system.NioReactor.Handler#ready(java.nio.channels.SelectionKey)
+	 */
+	@Override
+	public void ready(SelectionKey key) throws IOException {
+		if(key.isReadable()){
+			read();
+		}
+		if(key.isValid() && key.isWritable()){
+			write();
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see system.NioReactor.Handler#failed(java.io.IOException)
+	 */
+	@Override
+	public void failed(IOException e) {
+		if(closeCause != null){
+			return;
+		}
+		closeCause = e;
+		try {
+			channel.close();
+		} catch (IOException ignored) {
+			// The channel is being given up anyway.
+		}
+		System.out.println("Connection to " + peer + " closed: " + e);
+		discardQueued();
+		for(Long callId : pendingCalls.keySet()){
+			PendingCall call = pendingCalls.remove(callId);
+			if(call != null){
+				call.fail(e);
+			}
+		}
+	}
+
+	/**
+	 * Reads what the channel has, and dispatches the frames that are complete.
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private void read() throws IOException {
+		if(channel.read(readBuffer) < 0){
+			throw new EOFException("end of stream");
+		}
+		readBuffer.flip();
+		while(readBuffer.remaining() >= 4){
+			int length = readBuffer.getInt(readBuffer.position());
+			if(length < HEADER_SIZE - 4 || length > Constants.NIO_MAX_FRAME_SIZE){
+				throw new IOException("Bad frame length " + length);
+			}
+			if(readBuffer.remaining() < 4 + length){
+				if(readBuffer.capacity() < 4 + length){
+					// The frame does not fit: move what has been read of it into a buffer that is large enough.
+					ByteBuffer larger = ByteBuffer.allocate(4 + length);
+					larger.put(readBuffer);
+					readBuffer = larger;
+					return;
+				}
+				break;
+			}
+			ByteBuffer frame = readBuffer.slice();
+			frame.limit(4 + length);
+			readBuffer.position(readBuffer.position() + 4 + length);
+			if(readBuffer.capacity() > READ_BUFFER_SIZE){
+				// The frame had a buffer of its own, which it keeps: the int arrays it carries are read as views of it.
+				readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+				dispatch(frame);
+				return;
+			}
+			ByteBuffer copy = ByteBuffer.allocate(frame.remaining());
+			copy.put(frame);
+			copy.flip();
+			dispatch(copy);
+		}
+		readBuffer.compact();
+	}
+
+	/**
+	 * Hands a call to a server thread, or a reply to the thread that is waiting for it.
+	 *
+	 * @param frame the frame, which is left positioned after the call id
+	 * @throws IOException Signals that the frame is of an unknown kind.
+	 */
+	private void dispatch(final ByteBuffer frame) throws IOException {
+		frame.getInt();
+		byte kind = frame.get();
+		final long callId = frame.getLong();
+		if(kind == CALL){
+			SERVERS.execute(new Runnable() {
+				@Override
+				public void run() {
+					serve(callId, frame);
+				}
+			});
+		}
+		else if(kind == HELLO){
+			int supported;
+			try {
+				supported = (Integer) new FrameInput(frame).readObject();
+			} catch (ClassNotFoundException e) {
+				throw new IOException(e);
+			}
+			int preferred = Compression.getDefault();
+			compression = Compression.isSupported(preferred, supported) ? preferred : Compression.NONE;
+			System.out.println("Connection to " + peer + ": int arrays are sent with compression " + Compression.getName(compression));
+		}
+		else if(kind == REPLY || kind == FAILURE){
+			PendingCall call = pendingCalls.remove(callId);
+			if(call != null){
+				call.complete(kind, frame);
+			}
+		}
+		else{
+			throw new IOException("Bad frame kind " + kind);
+		}
+	}
+
+	/**
+	 * Writes the frames that the reactor has been left to write once the channel could take more, and then any frames queued since.
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private void write() throws IOException {
+		if(writeQueued()){
+			key.interestOps(SelectionKey.OP_READ);
+			writing.set(false);
+			flush();
+		}
+	}
+
+	/**
+	 * Writes as many of the queued frames as the channel takes, in a single gathering write; the caller holds the writing flag.
+	 *
+	 * @return true if all the queued frames were written
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private boolean writeQueued() throws IOException {
+		synchronized(unwritten){
+			ByteBuffer[] frame;
+			while((frame = outbox.poll()) != null){
+				unwritten.addAll(Arrays.asList(frame));
+			}
+			try {
+				channel.write(unwritten.toArray(new ByteBuffer[unwritten.size()]));
+			} catch (IOException e) {
+				releaseUnwritten();
+				throw e;
+			}
+			while(!unwritten.isEmpty() && !unwritten.peekFirst().hasRemaining()){
+				release(unwritten.removeFirst());
+			}
+			return unwritten.isEmpty();
+		}
+	}
+
+	/**
+	 * Queues a frame and flushes the queue. Once the connection has been closed the frame is discarded instead.
+	 *
+	 * @param frame the buffers of the frame
+	 */
+	private void send(ByteBuffer[] frame) {
+		outbox.add(frame);
+		// failed sets the cause before it discards the queue, so a frame queued as the connection closes is discarded by one or the other.
+		if(closeCause != null){
+			discardQueued();
+			return;
+		}
+		flush();
+	}
+
+	/**
+	 * Gives the pooled buffers of the frames that will never be written back to the pool, once the connection has been closed.
+	 * A writer may still hold the writing flag, or the reactor may have been left to write, neither of which will happen now.
+	 */
+	private void discardQueued() {
+		synchronized(unwritten){
+			ByteBuffer[] frame;
+			while((frame = outbox.poll()) != null){
+				unwritten.addAll(Arrays.asList(frame));
+			}
+			releaseUnwritten();
+		}
+	}
+
+	/**
+	 * Gives the pooled buffers of the frames taken from the outbox back to the pool, and forgets the frames; the caller holds the lock on unwritten.
+	 */
+	private void releaseUnwritten() {
+		for(ByteBuffer buffer : unwritten){
+			release(buffer);
+		}
+		unwritten.clear();
+	}
+
+	/**
+	 * Gives a buffer of a frame back to the pool if it came from there.
+	 *
+	 * @param buffer the buffer
+	 */
+	private static void release(ByteBuffer buffer) {
+		// The direct buffers of a frame are those of its int arrays, which came from the pool.
+		if(buffer.isDirect()){
+			DirectBufferPool.release(buffer);
+		}
+	}
+
+	/**
+	 * Writes the queued frames on the calling thread, unless another thread is writing them already.
+	 * Whatever the channel does not take is left to the reactor, which writes it once the channel can take more.
+	 */
+	private void flush() {
+		// A frame may be queued by another thread after the queue was written, but before the writing flag was cleared; hence the loop.
+		while(!outbox.isEmpty() && writing.compareAndSet(false, true)){
+			try {
+				if(!writeQueued()){
+					reactor.execute(new Runnable() {
+						@Override
+						public void run() {
+							try {
+								key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+							} catch (CancelledKeyException e) {
+								// The connection has been closed; the calls waiting on it have been failed.
+							}
+						}
+					});
+					return;
+				}
+			} catch (IOException e) {
+				failed(e);
+				return;
+			}
+			writing.set(false);
+		}
+	}
+
+	/**
+	 * Calls a method of the service on behalf of the other end, and sends back its return value or the exception it threw.
+	 *
+	 * @param callId the call id
+	 * @param frame the frame, positioned at the length of the stream, which holds the id of the method followed by the arguments
+	 */
+	private void serve(long callId, ByteBuffer frame) {
+		Frame reply;
+		try {
+			try {
+				ObjectInputStream in = new FrameInput(frame);
+				Method method = serviceMethods[in.readUnsignedShort()];
+				Object[] args = new Object[method.getParameterTypes().length];
+				for(int i = 0; i < args.length; i++){
+					args[i] = in.readObject();
+				}
+				reply = new Frame(REPLY, callId, method.invoke(service, args));
+			} catch (InvocationTargetException e) {
+				reply = new Frame(FAILURE, callId, e.getCause());
+			} catch (Exception e) {
+				reply = new Frame(FAILURE, callId, new RemoteException("Call could not be served", e));
+			}
+		} catch (IOException e) {
+			// The return value or the exception cannot be written; the caller still has to be told.
+			e.printStackTrace();
+			try {
+				reply = new Frame(FAILURE, callId, new MarshalException(e.toString()));
+			} catch (IOException impossible) {
+				throw new IllegalStateException(impossible);
+			}
+		}
+		send(reply.seal());
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.reflect.InvocationHandler#invoke(java.lang.Object, java.lang.reflect.Method, java.lang.Object[])
+	 */
+	@Override
+	public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+		if(method.getDeclaringClass() == Object.class){
+			if(method.getName().equals("equals")){
+				return proxy == args[0];
+			}
+			if(method.getName().equals("hashCode")){
+				return System.identityHashCode(proxy);
+			}
+			return "Proxy[" + proxy.getClass().getInterfaces()[0].getSimpleName() + ", " + peer + "]";
+		}
+		long callId = nextCallId.getAndIncrement();
+		PendingCall call = new PendingCall();
+		pendingCalls.put(callId, call);
+		// If the connection was closed before the call was put, nobody else will fail it.
+		if(closeCause != null && pendingCalls.remove(callId) != null){
+			throw new ConnectException("Connection to " + peer + " is closed", closeCause);
+		}
+		try {
+			send(new Frame(callId, remoteMethodIds.get(method), args).seal());
+		} catch (IOException e) {
+			pendingCalls.remove(callId);
+			throw new MarshalException("Call of " + method.getName() + " could not be written", e);
+		}
+		call.await();
+		if(call.cause != null){
+			throw new ConnectException("Connection to " + peer + " is closed", call.cause);
+		}
+		Object value;
+		try {
+			value = new FrameInput(call.frame).readObject();
+		} catch (IOException e) {
+			throw new UnmarshalException("Reply to " + method.getName() + " could not be read", e);
+		} catch (ClassNotFoundException e) {
+			throw new UnmarshalException("Reply to " + method.getName() + " could not be read", e);
+		}
+		if(call.kind == FAILURE){
+			Throwable t = (Throwable) value;
+			if(t instanceof RuntimeException || t instanceof Error){
+				throw t;
+			}
+			for(Class<?> type : method.getExceptionTypes()){
+				if(type.isInstance(t)){
+					throw t;
+				}
+			}
+			throw new RemoteException("Call of " + method.getName() + " failed", t);
+		}
+		// A reference to the service of the other end comes back as the proxy, which need not have the declared type.
+		if(value != null && !method.getReturnType().isPrimitive() && !method.getReturnType().isInstance(value)){
+			return null;
+		}
+		return value;
+	}
+
+	/**
+	 * A frame that is being written: the header is filled in once the stream has been written after it, and the int arrays are kept in buffers of their own.
+	 */
+	private final class Frame extends ByteArrayOutputStream {
+
+		/** The kind. */
+		private final byte kind;
+
+		/** The call id. */
+		private final long callId;
+
+		/** The buffers of the int arrays, in the order they were written. */
+		private final List<ByteBuffer> segments = new ArrayList<ByteBuffer>();
+
+		/**
+		 * Instantiates a new CALL frame.
+		 *
+		 * @param callId the call id
+		 * @param methodId the id of the method of the service of the other end
+		 * @param args the arguments, or null if the method has none
+		 * @throws IOException Signals that an argument could not be written.
+		 */
+		Frame(long callId, int methodId, Object[] args) throws IOException {
+			this(CALL, callId);
+			boolean written = false;
+			try {
+				ObjectOutputStream out = new FrameOutput(this);
+				out.writeShort(methodId);
+				if(args != null){
+					for(Object arg : args){
+						out.writeObject(arg);
+					}
+				}
+				out.close();
+				written = true;
+			} finally {
+				if(!written){
+					releaseSegments();
+				}
+			}
+		}
+
+		/**
+		 * Instantiates a new REPLY, FAILURE or HELLO frame.
+		 *
+		 * @param kind the kind
+		 * @param callId the call id
+		 * @param value the return value, the exception, or the compressions this end reads
+		 * @throws IOException Signals that the value could not be written.
+		 */
+		Frame(byte kind, long callId, Object value) throws IOException {
+			this(kind, callId);
+			boolean written = false;
+			try {
+				ObjectOutputStream out = new FrameOutput(this);
+				out.writeObject(value);
+				out.close();
+				written = true;
+			} finally {
+				if(!written){
+					releaseSegments();
+				}
+			}
+		}
+
+		/**
+		 * Instantiates a new frame with room for the header.
+		 *
+		 * @param kind the kind
+		 * @param callId the call id
+		 */
+		private Frame(byte kind, long callId) {
+			super(256);
+			this.kind = kind;
+			this.callId = callId;
+			this.count = HEADER_SIZE;
+		}
+
+		/**
+		 * Copies the remaining ints of a buffer into a pooled direct buffer that follows the stream.
+		 *
+		 * @param values the ints, which are not consumed
+		 */
+		void addSegment(IntBuffer values) {
+			ByteBuffer segment = DirectBufferPool.acquire(values.remaining() * 4);
+			segment.asIntBuffer().put(values.duplicate());
+			segments.add(segment);
+		}
+
+		/**
+		 * Gives the buffers of the int arrays back to the pool when the frame could not be written, since it will never be sent.
+		 */
+		private void releaseSegments() {
+			for(ByteBuffer segment : segments){
+				DirectBufferPool.release(segment);
+			}
+			segments.clear();
+		}
+
+		/**
+		 * Fills in the header.
+		 *
+		 * @return the buffers that make up the whole frame: the header and the stream, followed by the int arrays
+		 */
+		ByteBuffer[] seal() {
+			int length = count - 4;
+			for(ByteBuffer segment : segments){
+				length += segment.remaining();
+			}
+			ByteBuffer head = ByteBuffer.wrap(buf, 0, count);
+			head.putInt(0, length);
+			head.put(4, kind);
+			head.putLong(5, callId);
+			head.putInt(13, count - HEADER_SIZE);
+			ByteBuffer[] frame = new ByteBuffer[1 + segments.size()];
+			frame[0] = head;
+			for(int i = 0; i < segments.size(); i++){
+				frame[i + 1] = segments.get(i);
+			}
+			return frame;
+		}
+	}
+
+	/**
+	 * Writes the service of this end as a token, and hands the large int arrays to the frame, unless they are compressed.
+	 */
+	private final class FrameOutput extends ObjectOutputStream implements Codecs.BulkOutput, Codecs.CompressingOutput {
+
+		/** The frame. */
+		private final Frame frame;
+
+		/**
+		 * Instantiates a new frame output.
+		 *
+		 * @param frame the frame
+		 * @throws IOException Signals that an I/O exception has occurred.
+		 */
+		FrameOutput(Frame frame) throws IOException {
+			super(frame);
+			this.frame = frame;
+			enableReplaceObject(true);
+		}
+
+		/* (non-Javadoc)
+		 * @see api.Codecs.BulkOutput#writeInts(java.nio.IntBuffer)
+		 */
+		@Override
+		public void writeInts(IntBuffer values) {
+			frame.addSegment(values);
+		}
+
+		/* (non-Javadoc)
+		 * @see api.Codecs.CompressingOutput#getCompression()
+		 */
+		@Override
+		public int getCompression() {
+			return compression;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.io.ObjectOutputStream#replaceObject(java.lang.Object)
+		 */
+		@Override
+		protected Object replaceObject(Object obj) {
+			return obj == service ? ServiceReference.INSTANCE : obj;
+		}
+	}
+
+	/**
+	 * Reads the token of the service of the other end as the proxy, and the int arrays as views of the frame.
+	 */
+	private final class FrameInput extends ObjectInputStream implements Codecs.BulkInput {
+
+		/** The int arrays that follow the stream. */
+		private final ByteBuffer segments;
+
+		/**
+		 * Instantiates a new frame input.
+		 *
+		 * @param frame the frame, positioned at the length of the stream
+		 * @throws IOException Signals that an I/O exception has occurred.
+		 */
+		FrameInput(ByteBuffer frame) throws IOException {
+			super(takeStream(frame));
+			this.segments = frame.slice();
+			enableResolveObject(true);
+		}
+
+		/* (non-Javadoc)
+		 * @see api.Codecs.BulkInput#readInts(int)
+		 */
+		@Override
+		public IntBuffer readInts(int count) throws IOException {
+			if(count * 4 > segments.remaining()){
+				throw new EOFException("int array beyond the end of the frame");
+			}
+			ByteBuffer segment = segments.slice();
+			segment.limit(count * 4);
+			segments.position(segments.position() + count * 4);
+			return segment.order(Codecs.BYTE_ORDER).asIntBuffer();
+		}
+
+		/* (non-Javadoc)
+		 * @see java.io.ObjectInputStream#resolveObject(java.lang.Object)
+		 */
+		@Override
+		protected Object resolveObject(Object obj) {
+			return obj instanceof ServiceReference ? proxy : obj;
+		}
+	}
+
+	/**
+	 * Takes the stream off the front of a frame.
+	 *
+	 * @param frame the frame, positioned at the length of the stream; it is left positioned after the stream
+	 * @return the stream
+	 */
+	private static ByteArrayInputStream takeStream(ByteBuffer frame) {
+		int length = frame.getInt();
+		ByteArrayInputStream stream = new ByteArrayInputStream(frame.array(), frame.arrayOffset() + frame.position(), length);
+		frame.position(frame.position() + length);
+		return stream;
+	}
+
+	/**
+	 * The token that stands for the service of the end that wrote it.
+	 */
+	private static final class ServiceReference implements Serializable {
+
+		/** The Constant serialVersionUID. */
+		private static final long serialVersionUID = 1L;
+
+		/** The token. */
+		static final ServiceReference INSTANCE = new ServiceReference();
+	}
+
+	/**
+	 * A call that is waiting for its reply.
+	 */
+	private static final class PendingCall {
+
+		/** The kind of the reply. */
+		private byte kind;
+
+		/** The frame of the reply, positioned at the length of the stream. */
+		private ByteBuffer frame;
+
+		/** The cause of the closing of the connection, if it was closed before the reply came. */
+		private IOException cause;
+
+		/** Whether the call is done. */
+		private boolean done;
+
+		/**
+		 * Hands the reply to the caller.
+		 *
+		 * @param kind the kind of the reply
+		 * @param frame the frame of the reply
+		 */
+		synchronized void complete(byte kind, ByteBuffer frame) {
+			this.kind = kind;
+			this.frame = frame;
+			this.done = true;
+			notifyAll();
+		}
+
+		/**
+		 * Tells the caller that the connection was closed.
+		 *
+		 * @param cause the cause
+		 */
+		synchronized void fail(IOException cause) {
+			this.cause = cause;
+			this.done = true;
+			notifyAll();
+		}
+
+		/**
+		 * Waits until the call is done. Like an RMI call, it is not cut short by an interrupt, which is passed on once the call is done.
+		 */
+		synchronized void await() {
+			boolean interrupted = false;
+			while(!done){
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+			if(interrupted){
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+}
@@ -0,0 +1,110 @@
+/*
+ * @author gautham
+ */
+package system;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * The thread that does all the socket I/O of the NIO transport: it waits on a single selector for the channels that are ready,
+ * and hands each ready key to the Handler attached to it.
+ * Other threads never touch the selector or the keys directly; they submit a Runnable with execute, which the reactor runs before it selects again.
+ */
+final class NioReactor extends Thread {
+
+	/**
+	 * Is attached to a selection key and told when its channel is ready.
+	 */
+	interface Handler {
+
+		/**
+		 * Handles the operations for which the channel of the key is ready.
+		 *
+		 * @param key the selected key
+		 * @throws IOException Signals that an I/O exception has occurred; the reactor then calls failed
+		 */
+		void ready(SelectionKey key) throws IOException;
+
+		/**
+		 * Called when ready threw, after which the key is cancelled.
+		 *
+		 * @param e the exception
+		 */
+		void failed(IOException e);
+	}
+
+	/** The selector. */
+	private final Selector selector;
+
+	/** The actions submitted by other threads. */
+	private final Queue<Runnable> actions = new ConcurrentLinkedQueue<Runnable>();
+
+	/**
+	 * Instantiates a new reactor.
+	 *
+	 * @param name the name of the thread
+	 * @throws IOException Signals that the selector could not be opened.
+	 */
+	NioReactor(String name) throws IOException {
+		this.selector = Selector.open();
+		setName(name);
+		setDaemon(true);
+	}
+
+	/**
+	 * Gets the selector, with which channels are registered from actions run by the reactor.
+	 *
+	 * @return the selector
+	 */
+	Selector getSelector() {
+		return selector;
+	}
+
+	/**
+	 * Runs the action on the reactor thread before it selects again.
+	 *
+	 * @param action the action
+	 */
+	void execute(Runnable action) {
+		actions.add(action);
+		selector.wakeup();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Thread#run()
+	 */
+	@Override
+	public void run() {
+		while(true){
+			try {
+				selector.select();
+			} catch (IOException e) {
+				e.printStackTrace();
+				return;
+			}
+			Runnable action;
+			while((action = actions.poll()) != null){
+				action.run();
+			}
+			Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+			while(keys.hasNext()){
+				SelectionKey key = keys.next();
+				keys.remove();
+				Handler handler = (Handler) key.attachment();
+				try {
+					if(key.isValid()){
+						handler.ready(key);
+					}
+				} catch (IOException e) {
+					key.cancel();
+					handler.failed(e);
+				}
+			}
+		}
+	}
+}
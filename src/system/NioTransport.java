@@ -0,0 +1,86 @@
+/*
+ * @author gautham
+ */
+package system;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+/**
+ * The NIO transport between the Space and its Computers, an alternative to RMI that is chosen at startup with -Dtransport=nio.
+ * Each Computer keeps a single connection to the Space, over which the calls of Computer2Space and of Computer travel as length-prefixed frames;
+ * a single reactor thread does the socket I/O of all the connections of a JVM, and the calls of any number of threads are in flight on a connection at once.
+ * Clients still reach the Space through RMI.
+ */
+public final class NioTransport {
+
+	/**
+	 * Not to be instantiated.
+	 */
+	private NioTransport() {
+	}
+
+	/**
+	 * Accepts Computers on a port. A Computer that connects registers itself by calling Computer2Space.register over its connection, as it would through RMI.
+	 *
+	 * @param space the space
+	 * @param port the port
+	 * @throws IOException Signals that the port could not be bound.
+	 */
+	public static void listen(final Computer2Space space, int port) throws IOException {
+		final ServerSocketChannel server = ServerSocketChannel.open();
+		server.bind(new InetSocketAddress(port));
+		server.configureBlocking(false);
+		final NioReactor reactor = new NioReactor("NioReactor-" + port);
+		server.register(reactor.getSelector(), SelectionKey.OP_ACCEPT, new NioReactor.Handler() {
+			@Override
+			public void ready(SelectionKey key) throws IOException {
+				SocketChannel channel = server.accept();
+				if(channel == null){
+					return;
+				}
+				configure(channel);
+				new NioConnection(channel, reactor, space, Computer2Space.class, Computer.class).start();
+			}
+
+			@Override
+			public void failed(IOException e) {
+				e.printStackTrace();
+			}
+		});
+		reactor.start();
+	}
+
+	/**
+	 * Connects a Computer to the Space. The Computer is then set up and registered through the returned proxy, as it would be through RMI.
+	 *
+	 * @param host the host of the Space
+	 * @param port the port on which the Space listens
+	 * @param computer the computer whose methods the Space calls over the connection
+	 * @return the proxy through which the Space is called
+	 * @throws IOException Signals that the connection could not be made.
+	 */
+	public static Computer2Space connect(String host, int port, Computer computer) throws IOException {
+		SocketChannel channel = SocketChannel.open(new InetSocketAddress(host, port));
+		configure(channel);
+		NioReactor reactor = new NioReactor("NioReactor");
+		reactor.start();
+		NioConnection connection = new NioConnection(channel, reactor, computer, Computer.class, Computer2Space.class);
+		connection.start();
+		return (Computer2Space) connection.getProxy();
+	}
+
+	/**
+	 * Puts a connected channel in non-blocking mode, and turns off Nagle's algorithm so that small calls go out at once.
+	 *
+	 * @param channel the channel
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private static void configure(SocketChannel channel) throws IOException {
+		channel.configureBlocking(false);
+		channel.socket().setTcpNoDelay(true);
+	}
+}
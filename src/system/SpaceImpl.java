@@ -3,23 +3,34 @@
  */
 package system;
 
+import java.io.Serializable;
 import java.rmi.RMISecurityManager;
 import java.rmi.RemoteException;
 import java.rmi.registry.LocateRegistry;
 import java.rmi.registry.Registry;
 import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
 
 import utils.Constants;
+import api.Compression;
 import api.Result;
+import api.SharedData;
 import api.Space;
 import api.Task;
+import api.TaskIdGenerator;
 
 /**
  * This acts as a channel for passing messages between Client and ComputeServers. It defines mechanisms to hold Tasks that are created by the
@@ -31,22 +42,44 @@ public class SpaceImpl extends UnicastRemoteObject implements Space,
 	/** The Constant serialVersionUID. */
 	private static final long serialVersionUID = 1L;
 
-	/** A blocking dequeue that stores the Tasks that are ready to be executed. */
+	/** A blocking dequeue that stores the Tasks that are ready to be executed: the root tasks put by the Clients and the successor tasks whose arguments have all been computed. */
 	private BlockingDeque<Task> readyTasks;
 	
-	/**
-	 * A blocking dequeue that stores the Results submitted by the ComputeServers.
-	 */
-	private BlockingDeque<Result<?>> resultQueue;
+	/** The channels through which the final results of the root tasks reach the Clients, by the id of the job they were put under. Guarded by its own lock. */
+	private Map<String, JobChannel> jobChannels;
+	
+	/** The jobs of the root tasks that are being computed, by the successor id of each root task: an id that no task has, to which only its final result is delivered. */
+	private Map<Long, String> jobSinks;
+	
+	/** The partial results of the jobs that stream them, by stream key. */
+	private Map<String, BlockingQueue<Result<?>>> partialResults;
 	
 	/** The map that stores the waiting successor tasks. */
-	private Map<Object, Task> waitingTasks;
+	private Map<Long, WaitingTask<?>> waitingTasks;
+	
+	/**
+	 * The tasks handed to the Computers, by the argument they fill, until their results arrive. A task that a Computer splits locally fills its argument
+	 * once the successor of its sub-tree does, so a task stays here until its whole sub-tree has been computed, wherever its sub-tasks went.
+	 */
+	private Map<ArgumentSlot, Assignment> assignments;
 
 	/** A mapping between the computerId and the actual Computer Object. */
 	private Map<Integer, ComputerProxy> computerMap;
 
 	/** The computer id. */
 	private int computerId;
+	
+	/** The shared data of the running jobs. */
+	private Map<String, Object> sharedData;
+
+	/** The best known upper bounds of the branch-and-bound jobs, keyed like their shared data. */
+	private Map<String, Double> upperBounds;
+	
+	/** The weight of a new sample in the exponentially weighted moving averages. */
+	private static final double SMOOTHING = 0.2;
+	
+	/** The mean time in nanoseconds a Computer takes to execute a task, used to size the window of tasks each ComputerProxy keeps in flight. */
+	private volatile double meanTaskTime;
 
 	/**
 	 * Instantiates a new space impl.
@@ -54,12 +87,24 @@ public class SpaceImpl extends UnicastRemoteObject implements Space,
 	 * @throws RemoteException
 	 *             the remote exception
 	 */
-	protected SpaceImpl() throws RemoteException {
+	public SpaceImpl() throws RemoteException {
 		super();
 		readyTasks = new LinkedBlockingDeque<Task>();
-		resultQueue = new LinkedBlockingDeque<Result<?>>();
+		jobChannels = new HashMap<String, JobChannel>();
+		jobSinks = new ConcurrentHashMap<Long, String>();
 		computerMap = Collections.synchronizedMap(new HashMap<Integer, ComputerProxy>());
-		waitingTasks = Collections.synchronizedMap(new HashMap<Object, Task>());
+		waitingTasks = new ConcurrentHashMap<Long, WaitingTask<?>>();
+		assignments = new ConcurrentHashMap<ArgumentSlot, Assignment>();
+		sharedData = new ConcurrentHashMap<String, Object>();
+		upperBounds = new ConcurrentHashMap<String, Double>();
+		partialResults = new ConcurrentHashMap<String, BlockingQueue<Result<?>>>();
+		// Tasks whose combine runs in Space read the shared data straight from here.
+		SharedData.setLoader(new SharedData.Loader() {
+			@Override
+			public Object load(String key) {
+				return sharedData.get(key);
+			}
+		});
 	}
 
 	/**
@@ -75,6 +120,8 @@ public class SpaceImpl extends UnicastRemoteObject implements Space,
 	@Override
 	public synchronized Space register(Computer computer) throws RemoteException {
 		computerId++;
+		// Range 0 belongs to the Space; each Computer creates its tasks with ids from the range of its computerId.
+		computer.setTaskIdRange(computerId);
 		ComputerProxy proxy = new ComputerProxy(computer, computerId);
 		computerMap.put(computerId, proxy);
 		System.out.println("Registering computer " + computerId);
@@ -89,8 +136,24 @@ public class SpaceImpl extends UnicastRemoteObject implements Space,
 	 */
 	@Override
 	public <T> void put(Task<T> task) throws RemoteException {
+		put(DEFAULT_JOB, task);
+	}
+
+	/* (non-Javadoc)
+	 * @see api.Space#put(java.lang.String, api.Task)
+	 */
+	@Override
+	public <T> void put(String jobId, Task<T> task) throws RemoteException {
+		// Clients don't have an id range of their own; the root task takes an id from the Space's range, and so does its sink.
+		task.setTaskId(TaskIdGenerator.next());
+		long sinkId = TaskIdGenerator.next();
+		synchronized(jobChannels){
+			getJobChannel(jobId).outstanding++;
+			jobSinks.put(sinkId, jobId);
+		}
+		// Every task passes its successor id on to the successor it creates, so the final result of the job reaches the sink however the task is decomposed.
+		task.setSuccessorTaskId(sinkId);
 		readyTasks.addFirst(task);
-		//this.taskMap.put(task.getTaskId(), task);
 	}
 
 	/*
@@ -100,7 +163,171 @@ public class SpaceImpl extends UnicastRemoteObject implements Space,
 	 */
 	@Override
 	public Result<?> take() throws RemoteException, InterruptedException {
-		return resultQueue.take();
+		return take(DEFAULT_JOB);
+	}
+
+	/* (non-Javadoc)
+	 * @see api.Space#take(java.lang.String)
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public <T> Result<T> take(String jobId) throws RemoteException, InterruptedException {
+		JobChannel channel;
+		synchronized(jobChannels){
+			channel = getJobChannel(jobId);
+			channel.takers++;
+		}
+		try {
+			return (Result<T>) channel.results.take();
+		} finally {
+			synchronized(jobChannels){
+				channel.takers--;
+				// The channel is dropped only when nothing can reach it any more: no result to take, no root task to deliver one and no Client thread waiting on it.
+				if(channel.takers == 0 && channel.outstanding == 0 && channel.results.isEmpty()){
+					jobChannels.remove(jobId);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gets the channel of a job, creating it if it doesn't exist. The caller holds the lock on jobChannels.
+	 *
+	 * @param jobId the id of the job
+	 * @return the channel
+	 */
+	private JobChannel getJobChannel(String jobId) {
+		JobChannel channel = jobChannels.get(jobId);
+		if(channel == null){
+			channel = new JobChannel();
+			jobChannels.put(jobId, channel);
+		}
+		return channel;
+	}
+
+	/* (non-Javadoc)
+	 * @see api.Space#takePartials(java.lang.String)
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public <T> List<Result<T>> takePartials(String streamKey) throws RemoteException, InterruptedException {
+		BlockingQueue<Result<?>> stream = getStream(streamKey);
+		List<Result<T>> partials = new ArrayList<Result<T>>();
+		partials.add((Result<T>) stream.take());
+		for(Result<?> partial = stream.poll(); partial != null; partial = stream.poll()){
+			partials.add((Result<T>) partial);
+		}
+		return partials;
+	}
+
+	/* (non-Javadoc)
+	 * @see api.Space#closeStream(java.lang.String)
+	 */
+	@Override
+	public void closeStream(String streamKey) throws RemoteException {
+		partialResults.remove(streamKey);
+	}
+
+	/**
+	 * Gets the queue of the partial results of a stream, creating it if neither the Client nor a result has opened the stream yet.
+	 *
+	 * @param streamKey the key of the stream
+	 * @return the queue
+	 */
+	private BlockingQueue<Result<?>> getStream(String streamKey) {
+		BlockingQueue<Result<?>> stream = partialResults.get(streamKey);
+		if(stream == null){
+			stream = new LinkedBlockingQueue<Result<?>>();
+			BlockingQueue<Result<?>> existing = partialResults.putIfAbsent(streamKey, stream);
+			if(existing != null){
+				stream = existing;
+			}
+		}
+		return stream;
+	}
+
+	/* (non-Javadoc)
+	 * @see api.Space#putSharedData(java.lang.String, java.io.Serializable)
+	 */
+	@Override
+	public void putSharedData(String key, Serializable data) throws RemoteException {
+		sharedData.put(key, data);
+	}
+
+	/* (non-Javadoc)
+	 * @see api.Space#removeSharedData(java.lang.String)
+	 */
+	@Override
+	public void removeSharedData(String key) throws RemoteException {
+		sharedData.remove(key);
+		upperBounds.remove(key);
+		SharedData.evict(key);
+		for(ComputerProxy proxy : getProxies()){
+			try {
+				proxy.computer.evictSharedData(key);
+			} catch (RemoteException e) {
+				// The proxy of a failed Computer deals with its failure.
+			}
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see system.Computer2Space#getSharedData(java.lang.String)
+	 */
+	@Override
+	public Object getSharedData(String key) throws RemoteException {
+		return sharedData.get(key);
+	}
+
+	/* (non-Javadoc)
+	 * @see api.Space#updateUpperBound(java.lang.String, double)
+	 */
+	@Override
+	public void updateUpperBound(final String key, final double bound) throws RemoteException {
+		final boolean[] lowered = new boolean[1];
+		// The bound is only kept while the shared data of its job is registered, and it is lowered under the lock of that entry,
+		// so an update that races with removeSharedData cannot bring back the bound of a finished job.
+		sharedData.computeIfPresent(key, new BiFunction<String, Object, Object>() {
+			@Override
+			public Object apply(String k, Object data) {
+				Double current = upperBounds.get(key);
+				if(current == null || bound < current){
+					upperBounds.put(key, bound);
+					lowered[0] = true;
+				}
+				return data;
+			}
+		});
+		if(!lowered[0]){
+			return;
+		}
+		for(ComputerProxy proxy : getProxies()){
+			try {
+				proxy.computer.updateUpperBound(key, bound);
+			} catch (RemoteException e) {
+				// The proxy of a failed Computer deals with its failure.
+			}
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see system.Computer2Space#getUpperBound(java.lang.String)
+	 */
+	@Override
+	public double getUpperBound(String key) throws RemoteException {
+		Double bound = upperBounds.get(key);
+		return bound == null ? Double.MAX_VALUE : bound;
+	}
+
+	/**
+	 * Gets a snapshot of the proxies of the registered Computers.
+	 *
+	 * @return the proxies
+	 */
+	private List<ComputerProxy> getProxies() {
+		synchronized (computerMap) {
+			return new ArrayList<ComputerProxy>(computerMap.values());
+		}
 	}
 
 	/*
@@ -139,15 +366,19 @@ public class SpaceImpl extends UnicastRemoteObject implements Space,
 		Registry registry = LocateRegistry.createRegistry(1099);
 		// bind space in rmiregistry.
 		registry.rebind(Space.SERVICE_NAME, space);
+		// With -Dtransport=nio, the Computers reach the Space over the NIO transport instead; the Clients still use RMI.
+		if("nio".equals(System.getProperty("transport"))){
+			NioTransport.listen((Computer2Space) space, Constants.NIO_PORT);
+		}
 		System.out.println("Space is ready.");
 
 	}
 
 	/*
 	 * This thread's run method loops forever, removing tasks from the task
-	 * queue, invoking the associated Computer's execute method with the task as
-	 * its argument, and putting the returned Result object in the result queue
-	 * for retrieval by the client.
+	 * queue and invoking the associated Computer's execute method with the task as
+	 * its argument. When the task queue is empty and the Computer has run out of
+	 * work, a task is stolen from another Computer's deque instead.
 	 */
 	/**
 	 * It represents the remote proxy to the ComputeServer.
@@ -160,6 +391,15 @@ public class SpaceImpl extends UnicastRemoteObject implements Space,
 		/** The computer id. */
 		private int computerId;
 
+		/** The number of worker threads of the computer. */
+		private int numWorkers = 1;
+
+		/** The number of tasks queued on or being executed by the computer, as of the last call. */
+		private int load;
+
+		/** The measured round-trip time in nanoseconds of a call to the computer. */
+		private double roundTripTime;
+
 		/**
 		 * Instantiates a new computer proxy.
 		 * 
@@ -171,30 +411,76 @@ public class SpaceImpl extends UnicastRemoteObject implements Space,
 			this.computerId = computerId;
 		}
 
+		/**
+		 * Gets the number of tasks the proxy keeps in flight on its computer: one per worker, plus enough for every worker to stay busy during a round trip.
+		 *
+		 * @return the window size
+		 */
+		private int getWindowSize() {
+			double taskTime = meanTaskTime;
+			int roundTripsPerTask = taskTime > 0 ? (int) Math.ceil(roundTripTime / taskTime) : 1;
+			long window = (long) numWorkers * (1 + roundTripsPerTask);
+			return (int) Math.min(window, Constants.COMPUTER_ADMISSION_LIMIT);
+		}
+
 		/*
 		 * (non-Javadoc)
 		 * 
 		 * @see java.lang.Thread#run()
 		 */
 		public void run() {
-			Task<?> t = null;
+			List<Task<?>> tasks = new ArrayList<Task<?>>();
+			try {
+				numWorkers = computer.getNumWorkers();
+			} catch (RemoteException e) {
+				System.out.println("Remote Exception while contacting Computer " + this.computerId);
+				computerMap.remove(this.computerId);
+				return;
+			}
 			while (true) {
 				try {
-					t = readyTasks.takeFirst();
-					// The proxy doesn't wait for the computer to execute the task and put the result back to Space.
-					computer.execute(t);					
+					int room = getWindowSize() - load;
+					if(room > 0){
+						Task<?> t = readyTasks.pollFirst(Constants.STEAL_POLL_INTERVAL, TimeUnit.MILLISECONDS);
+						while(t != null){
+							tasks.add(t);
+							t = tasks.size() < room ? readyTasks.pollFirst() : null;
+						}
+					} else {
+						Thread.sleep(Constants.STEAL_POLL_INTERVAL);
+					}
+					if(tasks.isEmpty()){
+						load = computer.getLoad();
+						// Nothing in Space: when the Computer runs dry, steal on its behalf from the other Computers.
+						if(load >= numWorkers){
+							continue;
+						}
+						Task<?> stolen = stealTask();
+						if(stolen == null){
+							continue;
+						}
+						tasks.add(stolen);
+					}
+					// The tasks are held until their results arrive, so that they can be reassigned if the computer fails in the meantime.
+					for(Task<?> t : tasks){
+						assignments.put(new ArgumentSlot(t.getSuccessorTaskId(), t.getArgNo()), new Assignment(t, this));
+					}
+					// The proxy doesn't wait for the computer to execute the tasks and put the results back to Space.
+					long startTime = System.nanoTime();
+					load = computer.execute(tasks);
+					long elapsedTime = System.nanoTime() - startTime;
+					roundTripTime = roundTripTime == 0 ? elapsedTime : roundTripTime + SMOOTHING * (elapsedTime - roundTripTime);
+					tasks.clear();
 				} catch (RemoteException e) {
 					/*
 					 * The Space accommodates faulty computers: If a computer
 					 * that is running a task returns a RemoteException, the
 					 * task is assigned to another computer.
 					 */
-					System.out.println("Remote Exception while executing task "
-							+ t.getClass().getName() + " from Computer "
+					System.out.println("Remote Exception while executing " + tasks.size() + " tasks from Computer "
 							+ this.computerId);
-					// Adding the task back to the task queue
-					System.out.println("Adding the task back to the task queue to be assigned to another Computer");
-					readyTasks.addFirst(t);					
+					computerMap.remove(this.computerId);
+					reassignTasks();
 					break;
 				} catch (InterruptedException e) {
 					System.out.println("Interrupted Exception");
@@ -202,6 +488,54 @@ public class SpaceImpl extends UnicastRemoteObject implements Space,
 			}
 		}
 
+		/**
+		 * Puts every task handed to the failed computer whose result has not arrived back on the ready list, to be assigned to another Computer.
+		 * That covers the tasks queued on the computer and the sub-trees it split locally, whose sub-tasks never reached the Space;
+		 * a sub-task that another Computer stole finishes there, and its result is ignored if the reassigned task has filled the argument first.
+		 */
+		private void reassignTasks() {
+			int reassigned = 0;
+			for(Entry<ArgumentSlot, Assignment> entry : assignments.entrySet()){
+				Assignment assignment = entry.getValue();
+				if(assignment.proxy == this && assignments.remove(entry.getKey(), assignment)){
+					readyTasks.addFirst(assignment.task);
+					reassigned++;
+				}
+			}
+			if(reassigned > 0){
+				System.out.println("Adding " + reassigned + " tasks back to the task queue to be assigned to another Computer");
+			}
+		}
+
+		/**
+		 * Steals a task from the tail of another Computer's deque. The victims are visited starting from a random one so that the thieves spread out.
+		 *
+		 * @return the stolen task, or null if none of the other Computers had a task to spare
+		 */
+		private Task<?> stealTask() {
+			List<ComputerProxy> victims = getProxies();
+			int numVictims = victims.size();
+			if(numVictims < 2){
+				return null;
+			}
+			int start = ThreadLocalRandom.current().nextInt(numVictims);
+			for(int i = 0; i < numVictims; i++){
+				ComputerProxy victim = victims.get((start + i) % numVictims);
+				if(victim == this){
+					continue;
+				}
+				try {
+					Task<?> stolen = victim.computer.steal();
+					if(stolen != null){
+						return stolen;
+					}
+				} catch (RemoteException e) {
+					// The victim's own proxy deals with its failure.
+				}
+			}
+			return null;
+		}
+
 		/**
 		 * Stop the computer instance.
 		 */
@@ -221,30 +555,74 @@ public class SpaceImpl extends UnicastRemoteObject implements Space,
 	public <T> void storeResult(Task<T> task) {
 		//String type = task.getTaskType() == Constants.CHILD_TASK ? "Child Task" : "Successor Task";
 		//System.out.println(task.getTaskId() + "; " + type + "; " + Arrays.toString(task.getInputList()) + "; " + task.getSuccessorTaskId() + "; " + task.getTaskRunTime());
-		Object successorTaskId = task.getSuccessorTaskId();
-		Task<T> successorTask = this.waitingTasks.get(successorTaskId);
-		// if successorTask == null, then that's the last task to be executed
-		if(successorTask == null){
-			storeFinalResult(task.getResult());
+		storeResult(task.getSuccessorTaskId(), task.getArgNo(), task.getResult(), task.getTaskRunTime());
+	}
+	
+	/**
+	 * Stores the result of an executed task as an input of its successor.
+	 *
+	 * @param <T> the generic type
+	 * @param successorTaskId the successor task id
+	 * @param argNo the argument number of the executed task in the successor's input list
+	 * @param result the result
+	 * @param taskRunTime the time taken to run the task on the computer
+	 */
+	private <T> void storeResult(long successorTaskId, int argNo, Result<T> result, long taskRunTime) {
+		double taskTime = meanTaskTime;
+		meanTaskTime = taskTime == 0 ? taskRunTime : taskTime + SMOOTHING * (taskRunTime - taskTime);
+		
+		deliverResult(successorTaskId, argNo, result);
+	}
+	
+	/**
+	 * Fills in the result as an input of the successor. Once all the inputs of the successor have been stored, the successor is moved to the ready list,
+	 * unless its combine is cheap: the Space then executes it right away and delivers its result in turn, up the chain of successors.
+	 * A result that belongs to a stream is handed to the Client as a partial result instead, and the successor gets an empty result in its place.
+	 *
+	 * @param <T> the generic type
+	 * @param successorTaskId the successor task id
+	 * @param argNo the argument number of the executed task in the successor's input list
+	 * @param result the result
+	 */
+	@SuppressWarnings("unchecked")
+	private <T> void deliverResult(long successorTaskId, int argNo, Result<T> result) {
+		assignments.remove(new ArgumentSlot(successorTaskId, argNo));
+		if(result.getStreamKey() != null && result.getTaskReturnValue() != null){
+			getStream(result.getStreamKey()).add(result);
+			result = new Result<T>();
+		}
+		// if the successor is the sink of a job, then that's the last task of the job to be executed
+		if(jobSinks.containsKey(successorTaskId)){
+			storeFinalResult(successorTaskId, result);
+			return;
+		}
+		WaitingTask<T> successor = (WaitingTask<T>) this.waitingTasks.get(successorTaskId);
+		if(successor == null){
+			System.out.println("Dropping a result for successor " + successorTaskId + ": it is not waiting.");
 			return;
 		}
 		//System.out.println("Successor in storeResult: " + successorTaskId);
 		
-		Task<T>[] inputs = successorTask.getInputList();
-		
-		inputs[task.getArgNo()] = task;
-		int joinCounter = successorTask.getJoinCounter() - 1;
-		//System.out.println("Join counter: " + joinCounter);
-		successorTask.setJoinCounter(joinCounter);		
-		
-		// This task has been executed. Hence remove it from the ready queue.
-		//this.readyTasks.remove(task.getTaskId());
-		if(joinCounter == 0){ // If the successor task has all its arguments set, move it from the waiting list to ready list
+		// Only the store that fills the last argument sees true, so the successor is moved exactly once.
+		if(successor.fill(argNo, result)){ // If the successor task has all its arguments set, move it from the waiting list to ready list
 			this.waitingTasks.remove(successorTaskId);
-			this.readyTasks.addFirst(successorTask);
+			Task<T> successorTask = successor.getTask();
+			if(successorTask.isCombineCheap()){
+				Result<T> combined;
+				try {
+					combined = successorTask.execute();
+				} catch (RuntimeException e) {
+					// Leave a failed combine to a Computer rather than unwinding the caller, which may be a ComputerProxy thread.
+					e.printStackTrace();
+					this.readyTasks.addFirst(successorTask);
+					return;
+				}
+				deliverResult(successorTask.getSuccessorTaskId(), successorTask.getArgNo(), combined);
+			}
+			else{
+				this.readyTasks.addFirst(successorTask);
+			}
 		}
-		
-
 	}
 
 	
@@ -257,21 +635,9 @@ public class SpaceImpl extends UnicastRemoteObject implements Space,
 		//String type = parentTask.getTaskType() == Constants.CHILD_TASK ? "Child Task" : "Successor Task";
 		//System.out.println(parentTask.getTaskId() + "; " + type + "; " + Arrays.toString(parentTask.getInputList()) + "; " + parentTask.getSuccessorTaskId() + "; " + parentTask.getTaskRunTime());
 		
-		this.waitingTasks.put(successorTask.getTaskId(), successorTask);
-		
-		// if the parent task is not the root task
-		if(parentTask.getSuccessorTaskId() != null){
-			/* 
-			 * Update the parent successor's inputList.
-			 * In that list, the parent task must be substituted with the child tasks' successor task 
-			 */
-			Task<T> parentSuccessor = this.waitingTasks.get(parentTask.getSuccessorTaskId());
-			Task<T>[] parentInputList = parentSuccessor.getInputList();
-			successorTask.setArgNo(parentTask.getArgNo());
-			parentInputList[parentTask.getArgNo()] = successorTask;
-			
-			//System.out.println("Input No. " + parentTask.getArgNo() + " of " + parentSuccessor + " is " + successorTask);							
-		}
+		// The successor takes the place of the parent task in the input list of the parent's successor.
+		successorTask.setArgNo(parentTask.getArgNo());
+		this.waitingTasks.put(successorTask.getTaskId(), new WaitingTask<T>(successorTask));
 				
 		for(Task<T> t : childTasks){
 			// Set the successor task for the newly created tasks
@@ -282,26 +648,150 @@ public class SpaceImpl extends UnicastRemoteObject implements Space,
 				this.readyTasks.addFirst(t);				
 			}
 			else{
-				this.waitingTasks.put(t.getTaskId(), t);
+				this.waitingTasks.put(t.getTaskId(), new WaitingTask<T>(t));
 			}
 		}		
 	}
 
 	
+	/* (non-Javadoc)
+	 * @see system.Computer2Space#storeBatch(system.Batch)
+	 */
+	@Override
+	public void storeBatch(Batch batch) throws RemoteException {
+		for(Batch.Split split : batch.getSplits()){
+			storeSplit(split);
+		}
+		for(Batch.Completion completion : batch.getResults()){
+			storeResult(completion.getSuccessorTaskId(), completion.getArgNo(), completion.getResult(), completion.getTaskRunTime());
+		}
+	}
+
+	/**
+	 * Stores the tasks of a split of a batch. The parent task created the successor and the sub-tasks, so they all share its type.
+	 *
+	 * @param <T> the generic type
+	 * @param split the split
+	 * @throws RemoteException the remote exception
+	 */
+	@SuppressWarnings("unchecked")
+	private <T> void storeSplit(Batch.Split split) throws RemoteException {
+		List<Task<T>> childTasks = new ArrayList<Task<T>>(split.getChildTasks().size());
+		for(Task<?> childTask : split.getChildTasks()){
+			childTasks.add((Task<T>) childTask);
+		}
+		storeTasks((Task<T>) split.getParentTask(), childTasks, (Task<T>) split.getSuccessorTask());
+	}
+	
 	/**
 	 * Stores the final result that is obtained by the Client.
 	 *
 	 * @param <T> the generic type
+	 * @param sinkId the sink of the root task, which is released
 	 * @param result the result
 	 */
-	private <T> void storeFinalResult(Result<T> result){
-		System.out.println("Storing final result");
-		// process the result		
-		try {
-			resultQueue.put(result);			
-		} catch (InterruptedException e) {
-			e.printStackTrace();
+	private <T> void storeFinalResult(long sinkId, Result<T> result){
+		String jobId;
+		// The sink is released, and the root counted out, as the result is stored, so that take never sees the job with none of the three.
+		synchronized(jobChannels){
+			jobId = jobSinks.remove(sinkId);
+			if(jobId == null){
+				// The root task was executed twice, after its Computer failed; its result has already been stored.
+				return;
+			}
+			JobChannel channel = getJobChannel(jobId);
+			channel.outstanding--;
+			channel.results.add(result);
+		}
+		System.out.println("Storing final result of job " + jobId);
+		// The compression of the int arrays that came from the Computers since the last final result, of this job or of those running beside it.
+		String compression = Compression.report();
+		if(compression != null){
+			System.out.println(compression);
+			Compression.reset();
 		}
 	}
 	
+	/**
+	 * The final results of a job, and what may still reach them: the root tasks of the job that are being computed and the Client threads blocked in take.
+	 * The counts are guarded by the lock on jobChannels.
+	 */
+	private static class JobChannel {
+
+		/** The final results that have not been taken yet. */
+		private final BlockingQueue<Result<?>> results = new LinkedBlockingQueue<Result<?>>();
+
+		/** The number of root tasks whose final results have not been stored yet. */
+		private int outstanding;
+
+		/** The number of Client threads blocked in take. */
+		private int takers;
+	}
+
+	/**
+	 * The argument of a successor that the result of a task fills: the successor task id and the argument number.
+	 */
+	private static final class ArgumentSlot {
+
+		/** The successor task id. */
+		private final long successorTaskId;
+
+		/** The argument number. */
+		private final int argNo;
+
+		/**
+		 * Instantiates a new argument slot.
+		 *
+		 * @param successorTaskId the successor task id
+		 * @param argNo the argument number
+		 */
+		ArgumentSlot(long successorTaskId, int argNo) {
+			this.successorTaskId = successorTaskId;
+			this.argNo = argNo;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.lang.Object#equals(java.lang.Object)
+		 */
+		@Override
+		public boolean equals(Object o) {
+			if(!(o instanceof ArgumentSlot)){
+				return false;
+			}
+			ArgumentSlot other = (ArgumentSlot) o;
+			return successorTaskId == other.successorTaskId && argNo == other.argNo;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.lang.Object#hashCode()
+		 */
+		@Override
+		public int hashCode() {
+			return (int) (successorTaskId ^ (successorTaskId >>> 32)) * 31 + argNo;
+		}
+	}
+
+	/**
+	 * A task handed to a Computer, along with the proxy of that Computer.
+	 */
+	private static final class Assignment {
+
+		/** The task. */
+		private final Task<?> task;
+
+		/** The proxy of the Computer the task was handed to. */
+		private final ComputerProxy proxy;
+
+		/**
+		 * Instantiates a new assignment.
+		 *
+		 * @param task the task
+		 * @param proxy the proxy
+		 */
+		Assignment(Task<?> task, ComputerProxy proxy) {
+			this.task = task;
+			this.proxy = proxy;
+		}
+	}
+
 }
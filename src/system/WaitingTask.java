@@ -0,0 +1,72 @@
+/*
+ * @author gautham
+ */
+package system;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import api.Result;
+import api.Task;
+
+/**
+ * A successor task waiting in Space for the results of its sub-tasks.
+ * The argument slots and the join counter are updated atomically, so that results for the same successor can be stored concurrently without locking,
+ * and the successor is found to be ready exactly once.
+ *
+ * @param <T> the generic type
+ */
+final class WaitingTask<T> {
+
+	/** The successor task. */
+	private final Task<T> task;
+
+	/** The argument slots, filled in with the results of the sub-tasks as they finish. */
+	private final AtomicReferenceArray<Result<T>> inputs;
+
+	/** The number of argument slots that are still empty. */
+	private final AtomicInteger joinCounter;
+
+	/**
+	 * Instantiates a new waiting task.
+	 *
+	 * @param task the successor task
+	 */
+	WaitingTask(Task<T> task) {
+		this.task = task;
+		this.inputs = new AtomicReferenceArray<Result<T>>(task.getInputList().length);
+		this.joinCounter = new AtomicInteger(task.getJoinCounter());
+	}
+
+	/**
+	 * Gets the successor task.
+	 *
+	 * @return the task
+	 */
+	Task<T> getTask() {
+		return task;
+	}
+
+	/**
+	 * Fills an argument slot with the result of a sub-task. A slot that has already been filled, e.g. by a task that was executed twice after a Computer failed, is left as it is.
+	 *
+	 * @param argNo the argument number of the sub-task
+	 * @param result the result of the sub-task
+	 * @return true if this was the last empty slot; the successor's input list is then complete and the successor is ready to be executed
+	 */
+	boolean fill(int argNo, Result<T> result) {
+		if(! inputs.compareAndSet(argNo, null, result)){
+			return false;
+		}
+		int remaining = joinCounter.decrementAndGet();
+		if(remaining != 0){
+			return false;
+		}
+		// Only the return values travel on with the successor, not the sub-tasks themselves.
+		for(int i = 0; i < inputs.length(); i++){
+			task.setInput(i, inputs.get(i).getTaskReturnValue());
+		}
+		task.setJoinCounter(0);
+		return true;
+	}
+}
@@ -0,0 +1,261 @@
+/*
+ * @author gautham
+ */
+package tasks;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.ArrayList;
+import java.util.List;
+
+import utils.Constants;
+import api.Codecs;
+import api.Result;
+import api.SharedData;
+import api.Task;
+import api.TaskIdGenerator;
+
+/**
+ * This class represents a unit of work of a deep zoom into the Mandelbrot set, where adjacent pixels are too close together to be told apart in double precision.
+ * The orbit of the reference point at the center of the image is computed once per job in arbitrary precision and shared as a ReferenceOrbit.
+ * A pixel at c = C + dc is then iterated in double precision as the difference d[n] between its orbit and the reference orbit Z[n]:
+ * d[n + 1] = 2 Z[n] d[n] + d[n]^2 + dc. The difference stays small where the orbits are close, which keeps its relative precision.
+ * When the orbit of the pixel comes closer to 0 than to the reference orbit, or the reference orbit ends, the difference is rebased onto the start of
+ * the reference orbit (Z[0] = 0) with d = z, so that it never has to represent a large value with a small one.
+ * The k values have the same meaning as those of MandelbrotSetTask, and the image is split into bands of rows in the same way.
+ */
+public final class DeepZoomMandelbrotTask extends Task<MandelbrotTile> implements Externalizable{
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	static {
+		MandelbrotTile.registerCodec();
+	}
+	
+	/** The key under which the ReferenceOrbit is registered as shared data of the job. */
+	private String orbitKey;
+
+	/** The reference orbit; resolved from the shared data cache rather than shipped with every task. */
+	private transient ReferenceOrbit orbit;
+
+	/** The distance between adjacent pixels in the complex plane. */
+	private double pixelSize;
+
+	/** The numSquares denotes the number of pixels (n x n squares) of the image; the reference point is the pixel (numSquares / 2, numSquares / 2). */
+	private int numSquares;
+
+	/** The iteration limit that defines when the representative point of a region is considered to be in the Mandelbrot set. */
+	private int iterationLimit;
+
+	/** The row from which this task starts its computation. */
+	private int startRow;
+
+	/** The row until which this task does its computation. */
+	private int endRow;
+
+	/**
+	 * Instantiates a new deep zoom Mandelbrot task whose fields are then read by readExternal.
+	 */
+	public DeepZoomMandelbrotTask(){
+	}
+	
+	/**
+	 * Instantiates a new deep zoom Mandelbrot task.
+	 *
+	 * @param orbitKey the key under which the ReferenceOrbit is registered as shared data of the job
+	 * @param pixelSize the distance between adjacent pixels in the complex plane
+	 * @param numSquares the number of pixels (n x n squares) of the image
+	 * @param iterationLimit the iteration limit
+	 * @param startRow the start row
+	 * @param endRow the end row
+	 */
+	public DeepZoomMandelbrotTask(String orbitKey, double pixelSize, int numSquares, int iterationLimit, int startRow, int endRow){
+		super(TaskIdGenerator.next(), Constants.CHILD_TASK);
+		this.orbitKey = orbitKey;
+		this.pixelSize = pixelSize;
+		this.numSquares = numSquares;
+		this.iterationLimit = iterationLimit;
+		this.startRow = startRow;
+		this.endRow = endRow;
+	}
+
+	/**
+	 * Instantiates a new deep zoom Mandelbrot task.
+	 *
+	 * @param taskType the task type
+	 */
+	public DeepZoomMandelbrotTask(int taskType) {
+		super(TaskIdGenerator.next(), taskType);
+	}
+
+	/**
+	 * Computes the k values of the rows of this task.
+	 * @return a tile of the rows of this task
+	 */
+	@Override
+	public Result<MandelbrotTile> execute() {
+		Result<MandelbrotTile> result = new Result<MandelbrotTile>();
+		if(this.getTaskType() == Constants.CHILD_TASK){
+			if(this.orbit == null){
+				this.orbit = SharedData.get(this.orbitKey);
+			}
+			int numRows = this.endRow - this.startRow + 1;
+			int center = this.numSquares / 2;
+			int[] count = new int[numRows * this.numSquares];
+			for(int i = 0; i < numRows; i++){
+				double dcReal = (this.startRow + i - center) * this.pixelSize;
+				int offset = i * this.numSquares;
+				for(int j = 0; j < this.numSquares; j++){
+					count[offset + j] = getK(dcReal, (j - center) * this.pixelSize);
+				}
+			}
+			result.setTaskReturnValue(new MandelbrotTile(this.startRow, numRows, 0, this.numSquares, count));
+		}
+		else{
+			result.setTaskReturnValue(combine(this.getInputs()));
+		}
+		this.setResult(result);
+		return result;
+	}
+
+	/**
+	 * Gets the value of k for the pixel at the given offset from the reference point.
+	 *
+	 * @param dcReal the real part of the offset
+	 * @param dcImag the imaginary part of the offset
+	 * @return k
+	 */
+	private int getK(double dcReal, double dcImag){
+		double[] zReal = this.orbit.getReal();
+		double[] zImag = this.orbit.getImag();
+		int last = this.orbit.getLength() - 1;
+		int k = 1, n = 0;
+		double dReal = 0, dImag = 0;
+		while(k < iterationLimit){
+			double real = zReal[n] + dReal;
+			double imag = zImag[n] + dImag;
+			double norm = real * real + imag * imag;
+			if(norm >= 4){
+				break;
+			}
+			if(norm < dReal * dReal + dImag * dImag || n == last){
+				// Rebase onto Z[0] = 0.
+				dReal = real;
+				dImag = imag;
+				n = 0;
+			}
+			double temp = 2 * (zReal[n] * dReal - zImag[n] * dImag) + (dReal * dReal - dImag * dImag) + dcReal;
+			dImag = 2 * (zReal[n] * dImag + zImag[n] * dReal) + 2 * dReal * dImag + dcImag;
+			dReal = temp;
+			n++;
+			k++;
+		}
+		return k;
+	}
+
+	/**
+	 * The successor assembles the bands of rows of its sub-tasks.
+	 * @see api.Task#combine(java.util.List)
+	 */
+	@Override
+	public MandelbrotTile combine(List<MandelbrotTile> inputs) {
+		return MandelbrotTile.assemble(inputs);
+	}
+
+	/**
+	 * Assembling the tiles is a handful of array copies, which is cheaper than shipping them to a Computer and back.
+	 * @see api.Task#isCombineCheap()
+	 */
+	@Override
+	public boolean isCombineCheap() {
+		return true;
+	}
+
+	/* (non-Javadoc)
+	 * @see api.Task#isBaseCondition()
+	 */
+	@Override
+	public boolean isBaseCondition() {
+		return (this.endRow - this.startRow + 1) <= Constants.MANDELBROTSET_NUM_ROWS_PER_TASK;
+	}
+
+	/**
+	 * The cost of a task is the number of pixels it covers; a successor only copies the rows of its inputs.
+	 * @see api.Task#getCostEstimate()
+	 */
+	@Override
+	public long getCostEstimate() {
+		if(this.getTaskType() == Constants.SUCCESSOR_TASK){
+			return 1;
+		}
+		return (long) (this.endRow - this.startRow + 1) * this.numSquares;
+	}
+
+	/**
+	 * Each task is split into two halves of its rows, down to Constants.MANDELBROTSET_NUM_ROWS_PER_TASK rows.
+	 * @see api.Task#splitTask()
+	 */
+	@Override
+	public List<Task<MandelbrotTile>> splitTask() {
+		List<Task<MandelbrotTile>> tasks = new ArrayList<Task<MandelbrotTile>>(2);
+		int middle = this.startRow + (this.endRow - this.startRow) / 2;
+
+		Task<MandelbrotTile> task1 = new DeepZoomMandelbrotTask(orbitKey, pixelSize, numSquares, iterationLimit, startRow, middle);
+		task1.setArgNo(0);
+
+		Task<MandelbrotTile> task2 = new DeepZoomMandelbrotTask(orbitKey, pixelSize, numSquares, iterationLimit, middle + 1, endRow);
+		task2.setArgNo(1);
+
+		tasks.add(task1);
+		tasks.add(task2);
+		return tasks;
+	}
+
+	/* (non-Javadoc)
+	 * @see api.Task#createSuccessorTask()
+	 */
+	@Override
+	public Task<MandelbrotTile> createSuccessorTask() {
+		Task<MandelbrotTile> successorTask = new DeepZoomMandelbrotTask(Constants.SUCCESSOR_TASK);
+		Object[] inputList = new Object[2];
+		successorTask.setInputList(inputList);
+
+		// Successor's successor should be the current task's successor.
+		successorTask.setSuccessorTaskId(this.getSuccessorTaskId());
+		successorTask.setJoinCounter(inputList.length);
+
+		return successorTask;
+	}
+	
+	/**
+	 * Writes the fields of the task in a compact form, instead of Java serialization.
+	 * @see java.io.Externalizable#writeExternal(java.io.ObjectOutput)
+	 */
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		writeTask(out);
+		Codecs.writeString(out, this.orbitKey);
+		out.writeDouble(this.pixelSize);
+		out.writeInt(this.numSquares);
+		out.writeInt(this.iterationLimit);
+		out.writeInt(this.startRow);
+		out.writeInt(this.endRow);
+	}
+	
+	/* (non-Javadoc)
+	 * @see java.io.Externalizable#readExternal(java.io.ObjectInput)
+	 */
+	@Override
+	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+		readTask(in);
+		this.orbitKey = Codecs.readString(in);
+		this.pixelSize = in.readDouble();
+		this.numSquares = in.readInt();
+		this.iterationLimit = in.readInt();
+		this.startRow = in.readInt();
+		this.endRow = in.readInt();
+	}
+}
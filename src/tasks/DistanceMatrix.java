@@ -0,0 +1,82 @@
+/*
+ * @author gautham
+ */
+package tasks;
+
+import java.io.Serializable;
+
+/**
+ * The Euclidean distances between every pair of cities of a TSP, computed once per job and shared with all of its tasks.
+ * The distances are laid out row by row in a single array, so that the distance from city i to city j is at index i * numCities + j.
+ */
+public final class DistanceMatrix implements Serializable {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The number of cities. */
+	private final int numCities;
+
+	/** The distances, row by row. */
+	private final double[] distances;
+
+	/**
+	 * Instantiates a new distance matrix.
+	 *
+	 * @param cities the cities in 2D Euclidean plane; cities[i][0] is the x-coordinate and cities[i][1] is the y-coordinate of city[i]
+	 */
+	public DistanceMatrix(double[][] cities) {
+		this.numCities = cities.length;
+		this.distances = new double[numCities * numCities];
+		for(int i = 0; i < numCities; i++){
+			for(int j = 0; j < numCities; j++){
+				double dx = cities[i][0] - cities[j][0];
+				double dy = cities[i][1] - cities[j][1];
+				this.distances[i * numCities + j] = Math.sqrt(dx * dx + dy * dy);
+			}
+		}
+	}
+
+	/**
+	 * Gets the number of cities.
+	 *
+	 * @return the number of cities
+	 */
+	public int getNumCities() {
+		return numCities;
+	}
+
+	/**
+	 * Gets the distance between two cities.
+	 *
+	 * @param from the first city
+	 * @param to the second city
+	 * @return the distance
+	 */
+	public double get(int from, int to) {
+		return distances[from * numCities + to];
+	}
+
+	/**
+	 * Gets the distances, row by row, for the loops that index them directly.
+	 *
+	 * @return the distances; must not be modified
+	 */
+	public double[] getDistances() {
+		return distances;
+	}
+
+	/**
+	 * Gets the cost of a closed tour, including the way back to its first city.
+	 *
+	 * @param tour the tour
+	 * @return the cost
+	 */
+	public double getTourCost(int[] tour) {
+		double cost = 0;
+		for(int i = 0; i < tour.length; i++){
+			cost += get(tour[i], tour[(i + 1) % tour.length]);
+		}
+		return cost;
+	}
+}
@@ -3,29 +3,40 @@
  */
 package tasks;
 
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
 import java.util.Map.Entry;
 
 import utils.Constants;
 
+import api.Codecs;
 import api.Result;
+import api.SharedBounds;
+import api.SharedData;
 import api.Task;
+import api.TaskIdGenerator;
 
 /**
  * This class represents a unit of task involved in solving a Traveling Salesman Problem (TSP), where the cities are points in the 2D Euclidean plane.
  */
-public final class EuclideanTspTask extends Task<Map<int[], Double>>{
+public final class EuclideanTspTask extends Task<Map<int[], Double>> implements Externalizable{
 
 	/** The Constant serialVersionUID. */
 	private static final long serialVersionUID = 1L;
 	
-	/** The cities in 2D Euclidean plane that are part of the TSP. */
-	private double[][] cities;
+	/** The key under which the distances between the cities are registered as shared data of the job. */
+	private String distancesKey;
+	
+	/** The distances between the cities that are part of the TSP; resolved from the shared data cache rather than shipped with every task. */
+	private transient DistanceMatrix distances;
 	
 	/** The taskPermutation denotes the permutation of cities given to this task. */
 	private int[] taskPermutation;
@@ -37,6 +48,15 @@ public final class EuclideanTspTask extends Task<Map<int[], Double>>{
 	/** The level of this task. */
 	private int level;
 	
+	/** Whether the tours under the prefix are searched with branch and bound rather than enumerated exhaustively. */
+	private boolean branchAndBound;
+	
+	
+	/**
+	 * Instantiates a new Euclidean TSP task whose fields are then read by readExternal.
+	 */
+	public EuclideanTspTask(){
+	}
 	
 	/**
 	 * Instantiates a new euclidean tsp task.
@@ -44,23 +64,39 @@ public final class EuclideanTspTask extends Task<Map<int[], Double>>{
 	 * @param taskType the task type
 	 */
 	public EuclideanTspTask(int taskType){
-		super(UUID.randomUUID(), taskType);
+		super(TaskIdGenerator.next(), taskType);
+	}
+	
+	/**
+	 * Instantiates a new Euclidean TSP task.
+	 *
+	 * @param distancesKey the key under which the DistanceMatrix of the cities is registered as shared data of the job
+	 * @param prefix the prefix
+	 * @param permutation the original permutation of the cities given to this Task
+	 * @param level the level
+	 */
+	public EuclideanTspTask(String distancesKey, int[] prefix, int[] permutation, int level){
+		this(distancesKey, prefix, permutation, level, false);
 	}
 	
 	/**
 	 * Instantiates a new Euclidean TSP task.
+	 * In branch-and-bound mode, the best tour known in the cluster is kept in SharedBounds under the distancesKey, and a partial tour is abandoned as soon as it cannot beat it.
+	 * A task that finds no tour shorter than that bound returns an empty map.
 	 *
-	 * @param cities the cities
+	 * @param distancesKey the key under which the DistanceMatrix of the cities is registered as shared data of the job
 	 * @param prefix the prefix
 	 * @param permutation the original permutation of the cities given to this Task
 	 * @param level the level
+	 * @param branchAndBound whether the tours are searched with branch and bound
 	 */
-	public EuclideanTspTask(double[][] cities, int[] prefix, int[] permutation, int level){
-		super(UUID.randomUUID(), Constants.CHILD_TASK);
-		this.cities = cities;
+	public EuclideanTspTask(String distancesKey, int[] prefix, int[] permutation, int level, boolean branchAndBound){
+		super(TaskIdGenerator.next(), Constants.CHILD_TASK);
+		this.distancesKey = distancesKey;
 		this.prefix = prefix;
 		this.taskPermutation = permutation;			
 		this.level = level;
+		this.branchAndBound = branchAndBound;
 	}
 	
 	/**
@@ -72,41 +108,44 @@ public final class EuclideanTspTask extends Task<Map<int[], Double>>{
 	public Result<Map<int[], Double>> execute() {
 		Result<Map<int[], Double>> result = new Result<Map<int[], Double>>();		
 		
-		if(this.taskType == Constants.CHILD_TASK){
+		if(this.taskType == Constants.CHILD_TASK && this.branchAndBound){
+			result.setTaskReturnValue(new BranchAndBound(getDistanceMatrix(), this.distancesKey).search(this.prefix, this.taskPermutation));
+		}
+		else if(this.taskType == Constants.CHILD_TASK){
+			DistanceMatrix matrix = getDistanceMatrix();
+			double[] distances = matrix.getDistances();
+			int numCities = matrix.getNumCities();
+			int first = this.prefix[0];
+			int last = this.prefix[this.prefix.length - 1];
 			// Variable to hold the minimum distance between all the cities.
 			double minDistance = Double.MAX_VALUE;
-			// set n = 2 since the first permutation is not needed.
-			int n = 2;
 			// a map of the minimal tour among the permutations computed by this task and the cost involved for that tour.
 			Map<int[], Double> minTourMap = new HashMap<int[], Double>(1);
-			int[] tour = new int[cities.length];
-			// currentDistance holds the distance traveled for the given permutation of the cities
-			double currentDistance = 0;
+			int[] tour = new int[numCities];
 			double initDistance = 0;
 			for(int i = 0; i < this.prefix.length - 1; i++){
-				initDistance += calculateDistance(this.cities[this.prefix[i]], this.cities[this.prefix[i + 1]]);
-			}			
+				initDistance += distances[this.prefix[i] * numCities + this.prefix[i + 1]];
+			}
 			
-			while(true){			
-				this.taskPermutation = getPermutation(this.taskPermutation, n++);
-				if(this.taskPermutation == null){ // All the permutations have been computed. No more left.
-					break;
-				}
-				currentDistance = initDistance;
-				// distance between the last city in prefix and the first city in taskPermutation
-				currentDistance += calculateDistance(this.cities[this.prefix[this.prefix.length - 1]], this.cities[this.taskPermutation[0]]);
-				for(int j = 0; j < this.taskPermutation.length - 1; j++){
-					currentDistance += calculateDistance(this.cities[this.taskPermutation[j]], this.cities[this.taskPermutation[j + 1]]);				
-				}
-				// distance between the last city in taskPermutation and the first city in prefix
-				currentDistance += calculateDistance(this.cities[this.taskPermutation[this.taskPermutation.length - 1]], this.cities[this.prefix[0]]);
+			// The permutation is advanced in a copy, so that the task keeps describing its share of the tours.
+			int[] permutation = Arrays.copyOf(this.taskPermutation, this.taskPermutation.length);
+			int length = permutation.length;
+			// partialDistances[j] is the distance traveled from the first city in prefix up to permutation[j]. Only the entries from the first position the
+			// next permutation changed onwards are recomputed, which on average is a short suffix.
+			double[] partialDistances = new double[length];
+			updatePartialDistances(partialDistances, permutation, 0, initDistance, last, distances, numCities);
+			// The first permutation is not needed.
+			int changed;
+			while((changed = nextPermutation(permutation)) >= 0){
+				updatePartialDistances(partialDistances, permutation, changed, initDistance, last, distances, numCities);
+				// distance between the last city in permutation and the first city in prefix
+				double currentDistance = partialDistances[length - 1] + distances[permutation[length - 1] * numCities + first];
 				
 				if(minDistance > currentDistance){
 					minDistance = currentDistance;
 					// copy the current task's permutation to an array starting from index = prefix.length
-					copyArray(this.taskPermutation, tour, this.prefix.length);
+					copyArray(permutation, tour, this.prefix.length);
 				}
-				
 			}		
 			// copy the current task's prefix to the array starting from index 0.
 			copyArray(this.prefix, tour, 0);
@@ -116,27 +155,74 @@ public final class EuclideanTspTask extends Task<Map<int[], Double>>{
 		}
 		else{
 			// Successor task
-			int[] minTour = null;
-			double minDistance = Double.MAX_VALUE;
-			Map<int[], Double> map = new HashMap<int[], Double>();
-			// Get the map representing the minimal tour from all the sub-tasks corresponding to this successor task  
-			for(Task<Map<int[], Double>> task : this.getInputList()){
-				Map<int[], Double> minTourMap = task.getResult().getTaskReturnValue();				
-				for(Entry<int[], Double> entry : minTourMap.entrySet()){
-					double distance = entry.getValue();
-					if(distance < minDistance){
-						minDistance = distance;
-						minTour = entry.getKey();						
-					}
-				}				
-			}
-			map.put(minTour, minDistance);
-			result.setTaskReturnValue(map);
+			result.setTaskReturnValue(combine(this.getInputs()));
 		}
 		this.setResult(result);
 		return result;
 	}
 	
+	/**
+	 * The successor picks the minimal tour among the ones found by its sub-tasks.
+	 * @return a map of the minimal tour and its cost, or an empty map if none of the sub-tasks found a tour
+	 * @see api.Task#combine(java.util.List)
+	 */
+	@Override
+	public Map<int[], Double> combine(List<Map<int[], Double>> inputs) {
+		int[] minTour = null;
+		double minDistance = Double.MAX_VALUE;
+		Map<int[], Double> map = new HashMap<int[], Double>();
+		// Get the map representing the minimal tour from all the sub-tasks corresponding to this successor task  
+		for(Map<int[], Double> minTourMap : inputs){
+			for(Entry<int[], Double> entry : minTourMap.entrySet()){
+				double distance = entry.getValue();
+				if(distance < minDistance){
+					minDistance = distance;
+					minTour = entry.getKey();						
+				}
+			}				
+		}
+		// In branch-and-bound mode, none of the sub-tasks may have beaten the known bound.
+		if(minTour != null){
+			map.put(minTour, minDistance);
+		}
+		return map;
+	}
+	
+	/**
+	 * Gets the distances between the cities, looking them up in the shared data cache the first time.
+	 *
+	 * @return the distance matrix
+	 */
+	private DistanceMatrix getDistanceMatrix(){
+		if(this.distances == null){
+			this.distances = SharedData.get(this.distancesKey);
+		}
+		return this.distances;
+	}
+	
+	/**
+	 * Recomputes the distances traveled up to each city of the permutation, from the given position onwards.
+	 *
+	 * @param partialDistances the distances traveled up to each position of the permutation; the entries before from are left as they are
+	 * @param permutation the permutation
+	 * @param from the first position whose city has changed
+	 * @param initDistance the length of the path through the prefix
+	 * @param last the last city in prefix
+	 * @param distances the distances between the cities, row by row
+	 * @param numCities the number of cities
+	 */
+	private static void updatePartialDistances(double[] partialDistances, int[] permutation, int from, double initDistance, int last, double[] distances, int numCities){
+		for(int j = from; j < permutation.length; j++){
+			if(j == 0){
+				// distance between the last city in prefix and the first city in permutation
+				partialDistances[0] = initDistance + distances[last * numCities + permutation[0]];
+			}
+			else{
+				partialDistances[j] = partialDistances[j - 1] + distances[permutation[j - 1] * numCities + permutation[j]];
+			}
+		}
+	}
+	
 	/**
 	 * Copy array.
 	 *
@@ -150,23 +236,17 @@ public final class EuclideanTspTask extends Task<Map<int[], Double>>{
 		}
 	}
 	/**
-	 * Generate the nth permutations in lexicographic order.
+	 * Advances the permutation in place to the next one in lexicographic order.
 	 *
-	 * @param permutation the (n-1)th permutation array; when n = 1, it is just 0 to permutation length - 1
-	 * @param n the nth permutation to be computed
-	 * @return the nth permutation
+	 * @param permutation the permutation
+	 * @return the first position that changed, or -1 if the permutation was the last one (in which case it is left as it is)
 	 */
-	private int[] getPermutation(int[] permutation, int n) {
-		if(n == 1){ // the first permutation is just 0 to permutation length - 1 (0 to no. of cities - 1)
-			for (int i = 0; i < permutation.length; i++)
-		    	permutation[i] = i;
-			return permutation;
-		}
+	private static int nextPermutation(int[] permutation) {
 		int k, l;
         // Find the largest index k such that a[k] < a[k + 1]. If no such index exists, the permutation is the last permutation.
         for (k = permutation.length - 2; k >=0 && permutation[k] >= permutation[k+1]; k--);
         if(k == -1){
-        	return null;
+        	return -1;
         }
         // Find the largest index l such that a[k] < a[l]. Since k + 1 is such an index, l is well defined and satisfies k < l.
         for (l = permutation.length - 1; permutation[k] >= permutation[l]; l--);
@@ -176,7 +256,7 @@ public final class EuclideanTspTask extends Task<Map<int[], Double>>{
         for (int j = 1; k + j < permutation.length - j; j++){
         	swap(permutation, k + j, permutation.length - j);
         }
-        return permutation;
+        return k;
 	}
 	
 	/**
@@ -186,27 +266,13 @@ public final class EuclideanTspTask extends Task<Map<int[], Double>>{
 	 * @param i the ith position
 	 * @param j the jth position
 	 */
-	private void swap(int[] arr, int i, int j){
+	private static void swap(int[] arr, int i, int j){
 		int temp = arr[i];
 		arr[i] = arr[j];
 		arr[j] = temp;
 	}
 	
 	
-	/**
-	 * Calculate the Euclidean distance.
-	 *
-	 * @param pointA the starting point
-	 * @param pointB the ending point
-	 * @return distance the distance between the points
-	 */
-	private double calculateDistance(double[] pointA, double[] pointB){		
-		double temp1 = Math.pow((pointA[0] - pointB[0]), 2);
-		double temp2 = Math.pow((pointA[1] - pointB[1]), 2);
-		double distance = Math.sqrt(temp1 + temp2);
-		return distance;
-	}
-
 	/**
 	 * Gets the distance.
 	 *
@@ -214,13 +280,14 @@ public final class EuclideanTspTask extends Task<Map<int[], Double>>{
 	 * @return the distance
 	 */
 	private double getDistance(int[] permutation){
+		DistanceMatrix matrix = getDistanceMatrix();
 		double currentDistance = 0;
 		
-		currentDistance = calculateDistance(cities[this.taskPermutation[0]], cities[permutation[0]]);
+		currentDistance = matrix.get(this.taskPermutation[0], permutation[0]);
 		for(int j = 0; j < permutation.length - 1; j++){
-			currentDistance += calculateDistance(cities[permutation[j]], cities[permutation[j + 1]]);				
+			currentDistance += matrix.get(permutation[j], permutation[j + 1]);				
 		}
-		currentDistance += calculateDistance(cities[permutation[permutation.length - 1]], cities[this.taskPermutation[0]]);
+		currentDistance += matrix.get(permutation[permutation.length - 1], this.taskPermutation[0]);
 		return currentDistance;
 	}
 	/**
@@ -232,11 +299,21 @@ public final class EuclideanTspTask extends Task<Map<int[], Double>>{
 		double[][] cities = { { 1, 1 }, { 8, 1 }, { 8, 8 }, { 1, 8 }, { 2, 2 },
 				{ 7, 2 }, { 7, 7 }, { 2, 7 }, { 3, 3 }, { 6, 3 }, {6, 6}, {3, 6} };
 		int[] cityOrder = {10, 0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 11};
-		EuclideanTspTask task = new EuclideanTspTask(cities, new int[] {0}, cityOrder, 0);
+		SharedData.put("distances", new DistanceMatrix(cities));
+		EuclideanTspTask task = new EuclideanTspTask("distances", new int[] {0}, cityOrder, 0);
 		int[] arr = {6, 2, 1, 5, 9, 0, 4, 8, 11, 7, 3};
 		System.out.println(task.getDistance(arr));
 	}
 
+	/**
+	 * Picking the minimal tour among the few found by the sub-tasks is cheaper than shipping them to a Computer.
+	 * @see api.Task#isCombineCheap()
+	 */
+	@Override
+	public boolean isCombineCheap() {
+		return true;
+	}
+
 	/* (non-Javadoc)
 	 * @see api.Task#isBaseCondition()
 	 */
@@ -245,13 +322,32 @@ public final class EuclideanTspTask extends Task<Map<int[], Double>>{
 		return this.level == Constants.EUCLIDEANTSP_BASE_LEVEL;
 	}
 
+	/**
+	 * The cost of a task is the number of permutations below it times the length of each tour.
+	 * @see api.Task#getCostEstimate()
+	 */
+	@Override
+	public long getCostEstimate() {
+		if(this.taskType == Constants.SUCCESSOR_TASK){
+			return this.inputList.length;
+		}
+		long permutations = 1;
+		for(int i = 2; i <= this.taskPermutation.length; i++){
+			if(permutations > Long.MAX_VALUE / (i * getDistanceMatrix().getNumCities())){
+				return Long.MAX_VALUE;
+			}
+			permutations *= i;
+		}
+		return permutations * getDistanceMatrix().getNumCities();
+	}
+	
 	/**
 	 * Each TSP task is split into (no. cities.length - level - 1) tasks
 	 * @see api.Task#splitTask()
 	 */
 	@Override
 	public List<Task<Map<int[], Double>>> splitTask() {
-		int numTasks = this.cities.length - 1 - this.level;		
+		int numTasks = getDistanceMatrix().getNumCities() - 1 - this.level;		
 		int[] temp = Arrays.copyOf(this.taskPermutation, this.taskPermutation.length);
 		
 		List<Task<Map<int[], Double>>> tasks = new ArrayList<Task<Map<int[],Double>>>();
@@ -268,7 +364,7 @@ public final class EuclideanTspTask extends Task<Map<int[], Double>>{
 			
 			int[] taskPermutation = Arrays.copyOfRange(temp, 1, temp.length);
 			
-			Task<Map<int[], Double>> task = new EuclideanTspTask(this.cities, prefix, taskPermutation, this.level + 1);
+			Task<Map<int[], Double>> task = new EuclideanTspTask(this.distancesKey, prefix, taskPermutation, this.level + 1, this.branchAndBound);
 			task.setArgNo(i);
 			tasks.add(task);
 		}
@@ -283,16 +379,174 @@ public final class EuclideanTspTask extends Task<Map<int[], Double>>{
 	@Override
 	public Task<Map<int[], Double>> createSuccessorTask() {
 		Task<Map<int[], Double>> successorTask = new EuclideanTspTask(Constants.SUCCESSOR_TASK);
-		Task[] inputList = new Task[this.cities.length - 1 - this.level];		
+		Object[] inputList = new Object[getDistanceMatrix().getNumCities() - 1 - this.level];		
 		successorTask.setInputList(inputList);
 		
 		// Successor's successor should be the current task's successor.
-		successorTask.setSuccessorTaskId((Object)this.getSuccessorTaskId());
+		successorTask.setSuccessorTaskId(this.getSuccessorTaskId());
 		successorTask.setJoinCounter(inputList.length);		
 		
 		return successorTask;
 	}
 	
+	/**
+	 * A depth-first branch-and-bound search for the shortest tour that starts with a given prefix.
+	 * A partial tour is cut as soon as its cost plus a lower bound on the rest of the tour reaches the best known tour.
+	 * The lower bound charges every city that is still to be entered, including the starting city, with its nearest-neighbour distance.
+	 */
+	private static final class BranchAndBound {
+		
+		/** The number of nodes expanded between two looks at the cluster-wide bound. */
+		private static final int BOUND_REFRESH_INTERVAL = 256;
+		
+		/** The key of the job in SharedBounds. */
+		private final String boundKey;
+		
+		/** The number of cities. */
+		private final int numCities;
+		
+		/** The distances between the cities, row by row. */
+		private final double[] distances;
+		
+		/** The distance from each city to its nearest neighbour. */
+		private final double[] minEdges;
+		
+		/** For each city, the other cities from the nearest to the farthest, so that good tours are found early. */
+		private final int[][] neighbours;
+		
+		/** The tour being built. */
+		private final int[] tour;
+		
+		/** Marks the cities that are part of the tour being built. */
+		private final boolean[] visited;
+		
+		/** The best tour found by this search, or null if it found none below the bound. */
+		private int[] bestTour;
+		
+		/** The cost of bestTour; the bound may have been lowered by a tour found elsewhere since. */
+		private double bestTourCost;
+		
+		/** The cost of the best known tour, found either by this search or elsewhere in the cluster. */
+		private double bestCost;
+		
+		/** The number of nodes expanded since the cluster-wide bound was last read. */
+		private int sinceRefresh;
+		
+		/**
+		 * Instantiates a new branch and bound search.
+		 *
+		 * @param matrix the distances between the cities
+		 * @param boundKey the key of the job in SharedBounds
+		 */
+		BranchAndBound(DistanceMatrix matrix, String boundKey){
+			int n = matrix.getNumCities();
+			this.boundKey = boundKey;
+			this.numCities = n;
+			this.distances = matrix.getDistances();
+			this.minEdges = new double[n];
+			this.neighbours = new int[n][];
+			this.tour = new int[n];
+			this.visited = new boolean[n];
+			for(int i = 0; i < n; i++){
+				double minEdge = Double.MAX_VALUE;
+				for(int j = 0; j < n; j++){
+					if(i != j && this.distances[i * n + j] < minEdge){
+						minEdge = this.distances[i * n + j];
+					}
+				}
+				this.minEdges[i] = n > 1 ? minEdge : 0;
+			}
+			for(int i = 0; i < n; i++){
+				final int row = i * n;
+				Integer[] order = new Integer[n - 1];
+				for(int j = 0, k = 0; j < n; j++){
+					if(j != i){
+						order[k++] = j;
+					}
+				}
+				Arrays.sort(order, new Comparator<Integer>() {
+					@Override
+					public int compare(Integer a, Integer b) {
+						return Double.compare(distances[row + a], distances[row + b]);
+					}
+				});
+				this.neighbours[i] = new int[n - 1];
+				for(int j = 0; j < n - 1; j++){
+					this.neighbours[i][j] = order[j];
+				}
+			}
+		}
+		
+		/**
+		 * Searches the tours that start with the given prefix and continue with the given cities in any order.
+		 *
+		 * @param prefix the prefix
+		 * @param remaining the cities that are not part of the prefix
+		 * @return a map of the best tour found and its cost, or an empty map if no tour beats the known bound
+		 */
+		Map<int[], Double> search(int[] prefix, int[] remaining){
+			double cost = 0;
+			for(int i = 0; i < prefix.length; i++){
+				this.tour[i] = prefix[i];
+				this.visited[prefix[i]] = true;
+				if(i > 0){
+					cost += this.distances[prefix[i - 1] * this.numCities + prefix[i]];
+				}
+			}
+			// Every remaining city has to be entered once, and so has the starting city at the end of the tour.
+			double lowerBound = this.minEdges[prefix[0]];
+			for(int city : remaining){
+				lowerBound += this.minEdges[city];
+			}
+			this.bestCost = SharedBounds.get(this.boundKey);
+			expand(prefix.length, prefix[prefix.length - 1], cost, lowerBound);
+			
+			Map<int[], Double> minTourMap = new HashMap<int[], Double>(1);
+			if(this.bestTour != null){
+				minTourMap.put(this.bestTour, this.bestTourCost);
+			}
+			return minTourMap;
+		}
+		
+		/**
+		 * Extends the partial tour with every city that is yet to be visited, unless the partial tour cannot beat the best known tour.
+		 *
+		 * @param depth the number of cities in the partial tour
+		 * @param last the last city of the partial tour
+		 * @param cost the cost of the partial tour
+		 * @param lowerBound the lower bound on the cost of completing the partial tour
+		 */
+		private void expand(int depth, int last, double cost, double lowerBound){
+			if(++this.sinceRefresh >= BOUND_REFRESH_INTERVAL){
+				this.sinceRefresh = 0;
+				this.bestCost = Math.min(this.bestCost, SharedBounds.get(this.boundKey));
+			}
+			if(cost + lowerBound >= this.bestCost){
+				return;
+			}
+			if(depth == this.tour.length){
+				double tourCost = cost + this.distances[last * this.numCities + this.tour[0]];
+				if(tourCost < this.bestCost){
+					this.bestCost = tourCost;
+					this.bestTour = this.tour.clone();
+					this.bestTourCost = tourCost;
+					SharedBounds.offer(this.boundKey, tourCost);
+				}
+				return;
+			}
+			int row = last * this.numCities;
+			for(int next : this.neighbours[last]){
+				if(this.visited[next]){
+					continue;
+				}
+				this.visited[next] = true;
+				this.tour[depth] = next;
+				expand(depth + 1, next, cost + this.distances[row + next], lowerBound - this.minEdges[next]);
+				this.visited[next] = false;
+			}
+		}
+	}
+	
 	/*
 	@Override
 	public String toString(){
@@ -307,4 +561,31 @@ public final class EuclideanTspTask extends Task<Map<int[], Double>>{
 		return sb.toString();
 	}
 	*/
+	
+	/**
+	 * Writes the fields of the task in a compact form, instead of Java serialization.
+	 * @see java.io.Externalizable#writeExternal(java.io.ObjectOutput)
+	 */
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		writeTask(out);
+		Codecs.writeString(out, this.distancesKey);
+		Codecs.writeIntArray(out, this.taskPermutation);
+		Codecs.writeIntArray(out, this.prefix);
+		out.writeInt(this.level);
+		out.writeBoolean(this.branchAndBound);
+	}
+	
+	/* (non-Javadoc)
+	 * @see java.io.Externalizable#readExternal(java.io.ObjectInput)
+	 */
+	@Override
+	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+		readTask(in);
+		this.distancesKey = Codecs.readString(in);
+		this.taskPermutation = Codecs.readIntArray(in);
+		this.prefix = Codecs.readIntArray(in);
+		this.level = in.readInt();
+		this.branchAndBound = in.readBoolean();
+	}
 }
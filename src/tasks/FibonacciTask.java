@@ -3,20 +3,24 @@
  */
 package tasks;
 
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.UUID;
 
 import utils.Constants;
 
 import api.Result;
 import api.Task;
+import api.TaskIdGenerator;
 
 /**
  * This class represents the unit of work involved in computing the Fibonacci sum of a given value. 
  * Each subtask computes the fibonacci sum of a value lesser than the original value and the results are composed to form the fibonacci of the original value.
  */
-public class FibonacciTask extends Task<Integer>{
+public class FibonacciTask extends Task<Integer> implements Externalizable{
 
 	/** The Constant serialVersionUID. */
 	private static final long serialVersionUID = 1L;
@@ -24,6 +28,12 @@ public class FibonacciTask extends Task<Integer>{
 	/** The n. */
 	private int n;	
 		
+	/**
+	 * Instantiates a new fibonacci task whose fields are then read by readExternal.
+	 */
+	public FibonacciTask(){
+	}
+	
 	/**
 	 * Instantiates a new fibonacci task.
 	 *
@@ -31,7 +41,7 @@ public class FibonacciTask extends Task<Integer>{
 	 * @param taskType the task type
 	 */
 	public FibonacciTask(int n, int taskType){
-		super(UUID.randomUUID(), taskType);
+		super(TaskIdGenerator.next(), taskType);
 		this.n = n;		
 	}
 	
@@ -47,16 +57,24 @@ public class FibonacciTask extends Task<Integer>{
 			this.setResult(result);
 		}
 		else{ // successor task
-			int sum = 0;
-			
-			for(Task<Integer> task : this.inputList){	
-				sum += task.getResult().getTaskReturnValue();
-			}
-			result.setTaskReturnValue(sum);
+			result.setTaskReturnValue(combine(this.getInputs()));
 			this.setResult(result);
 		}
 		return result;
 	}
+	
+	/**
+	 * The successor adds up the values of its sub-tasks.
+	 * @see api.Task#combine(java.util.List)
+	 */
+	@Override
+	public Integer combine(List<Integer> inputs) {
+		int sum = 0;
+		for(Integer value : inputs){
+			sum += value;
+		}
+		return sum;
+	}
 
 	/**
 	 * The Fibonacci task is split into two subtasks. One with the value n-1 and another with the value n-2.
@@ -83,16 +101,25 @@ public class FibonacciTask extends Task<Integer>{
 	public Task<Integer> createSuccessorTask() {
 		// successor tasks have the 'n' value as -1
 		Task<Integer> successorTask = new FibonacciTask(-1, Constants.SUCCESSOR_TASK);
-		Task[] inputList = new Task[2];
+		Object[] inputList = new Object[2];
 		successorTask.setInputList(inputList);
 		
 		// Successor's successor should be the current task's successor.
-		successorTask.setSuccessorTaskId((Object)this.getSuccessorTaskId());
+		successorTask.setSuccessorTaskId(this.getSuccessorTaskId());
 		successorTask.setJoinCounter(inputList.length);
 		
 		return successorTask;
 	}
 
+	/**
+	 * Adding up two integers is cheaper than shipping them to a Computer.
+	 * @see api.Task#isCombineCheap()
+	 */
+	@Override
+	public boolean isCombineCheap() {
+		return true;
+	}
+
 	/* (non-Javadoc)
 	 * @see api.Task#isBaseCondition()
 	 */
@@ -101,6 +128,23 @@ public class FibonacciTask extends Task<Integer>{
 		return (this.n < Constants.FIBONACCI_BASE_CASE);
 	}
 
+	/**
+	 * The sub-tree of F(n) has 2 * F(n + 1) - 1 nodes.
+	 * @see api.Task#getCostEstimate()
+	 */
+	@Override
+	public long getCostEstimate() {
+		if(this.getTaskType() == Constants.SUCCESSOR_TASK){
+			return 1;
+		}
+		long previous = 0, current = 1;
+		for(int i = 0; i < this.n; i++){
+			long next = previous + current;
+			previous = current;
+			current = next;
+		}
+		return 2 * current - 1;
+	}
 	
 	/* (non-Javadoc)
 	 * @see java.lang.Object#toString()
@@ -118,5 +162,23 @@ public class FibonacciTask extends Task<Integer>{
 		return sb.toString();
 	}
 	*/
-
+	
+	/**
+	 * Writes the fields of the task in a compact form, instead of Java serialization.
+	 * @see java.io.Externalizable#writeExternal(java.io.ObjectOutput)
+	 */
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		writeTask(out);
+		out.writeInt(this.n);
+	}
+	
+	/* (non-Javadoc)
+	 * @see java.io.Externalizable#readExternal(java.io.ObjectInput)
+	 */
+	@Override
+	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+		readTask(in);
+		this.n = in.readInt();
+	}
 }
@@ -0,0 +1,346 @@
+/*
+ * @author gautham
+ */
+package tasks;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import utils.Constants;
+
+import api.Codecs;
+import api.Result;
+import api.SharedData;
+import api.Task;
+import api.TaskIdGenerator;
+
+/**
+ * This class represents a unit of task in solving a Euclidean Traveling Salesman Problem exactly with the Held-Karp dynamic program.
+ * The tours are partitioned by their prefix, as in EuclideanTspTask: every task down to Constants.HELDKARP_BASE_LEVEL fixes one more city after city 0.
+ * A task at the base level then finds the shortest way from the last city of its prefix through all the remaining cities and back to city 0
+ * by dynamic programming over the subsets of the remaining cities, instead of enumerating their permutations.
+ * The result is the same map of a tour and its cost that EuclideanTspTask produces.
+ * Partitioning by prefix keeps the tasks independent, at a price: the n-1 tasks of the base level each run a program over n-2 cities,
+ * which together cost about (n-1)/2 times a single program over all the cities, and each of them holds a table of (n-2) * 2^(n-2) doubles while it runs.
+ */
+public final class HeldKarpTspTask extends Task<Map<int[], Double>> implements Externalizable{
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The key under which the DistanceMatrix of the cities is registered as shared data of the job. */
+	private String distancesKey;
+
+	/** The distances between the cities; resolved from the shared data cache rather than shipped with every task. */
+	private transient DistanceMatrix distances;
+
+	/** The path taken from city 0 up to the current task. */
+	private int[] prefix;
+
+	/** The cities that are not part of the prefix. */
+	private int[] remaining;
+
+	/** The level of this task. */
+	private int level;
+
+	/**
+	 * Instantiates a new Held-Karp TSP task whose fields are then read by readExternal.
+	 */
+	public HeldKarpTspTask(){
+	}
+	
+	/**
+	 * Instantiates a new Held-Karp TSP task.
+	 *
+	 * @param taskType the task type
+	 */
+	public HeldKarpTspTask(int taskType){
+		super(TaskIdGenerator.next(), taskType);
+	}
+
+	/**
+	 * Instantiates a new Held-Karp TSP task.
+	 *
+	 * @param distancesKey the key under which the DistanceMatrix of the cities is registered as shared data of the job
+	 * @param prefix the path taken from city 0 up to this task
+	 * @param remaining the cities that are not part of the prefix
+	 * @param level the level
+	 */
+	public HeldKarpTspTask(String distancesKey, int[] prefix, int[] remaining, int level){
+		super(TaskIdGenerator.next(), Constants.CHILD_TASK);
+		this.distancesKey = distancesKey;
+		this.prefix = prefix;
+		this.remaining = remaining;
+		this.level = level;
+	}
+
+	/**
+	 * Executes the Held-Karp TSP task.
+	 * @return a map of the shortest tour that starts with the prefix and its cost
+	 */
+	@Override
+	public Result<Map<int[], Double>> execute() {
+		Result<Map<int[], Double>> result = new Result<Map<int[], Double>>();
+		if(this.taskType == Constants.CHILD_TASK){
+			Map<int[], Double> minTourMap = new HashMap<int[], Double>(1);
+			DistanceMatrix matrix = getDistanceMatrix();
+			int[] tour = new int[matrix.getNumCities()];
+			double cost = solve(matrix, tour);
+			minTourMap.put(tour, cost);
+			result.setTaskReturnValue(minTourMap);
+		}
+		else{
+			// Successor task
+			result.setTaskReturnValue(combine(this.getInputs()));
+		}
+		this.setResult(result);
+		return result;
+	}
+
+	/**
+	 * Gets the size of the tables a task of the base level allocates for a job of the given number of cities.
+	 *
+	 * @param numCities the number of cities of the job
+	 * @return the size in bytes, or -1 if the table would not fit in a Java array
+	 */
+	public static long getTableBytes(int numCities){
+		// The prefix of a task of the base level holds city 0 and one city for each level above it.
+		int m = Math.max(0, numCities - 1 - Constants.HELDKARP_BASE_LEVEL);
+		if(m > 30 || ((long) m << m) > Integer.MAX_VALUE - 8){
+			return -1;
+		}
+		return 8L * (((long) m << m) + (long) m * m);
+	}
+
+	/**
+	 * Finds the shortest tour that starts with the prefix.
+	 * cost[subset * m + j] is the length of the shortest path that leaves the last city of the prefix, visits exactly the remaining cities in the subset and ends at
+	 * remaining[j], where m is the number of remaining cities. The entries of a subset are adjacent, and the distances between the remaining cities are copied
+	 * into an m x m table, so that the inner loops walk through memory sequentially. The tour is recovered by walking the table backwards rather than by keeping
+	 * a second table of predecessors: a predecessor is the city whose entry plus the last edge reproduces the entry exactly.
+	 *
+	 * @param matrix the distances between the cities
+	 * @param tour the array that receives the tour
+	 * @return the cost of the tour
+	 */
+	private double solve(DistanceMatrix matrix, int[] tour){
+		int m = this.remaining.length;
+		if(m > 30 || ((long) m << m) > Integer.MAX_VALUE - 8){
+			throw new IllegalStateException("Too many cities left for a Held-Karp task: " + m);
+		}
+		int last = this.prefix[this.prefix.length - 1];
+		double prefixCost = 0;
+		for(int i = 0; i < this.prefix.length; i++){
+			tour[i] = this.prefix[i];
+			if(i > 0){
+				prefixCost += matrix.get(this.prefix[i - 1], this.prefix[i]);
+			}
+		}
+		if(m == 0){
+			return prefixCost + matrix.get(last, this.prefix[0]);
+		}
+
+		double[] edges = new double[m * m];
+		for(int i = 0; i < m; i++){
+			for(int j = 0; j < m; j++){
+				edges[i * m + j] = matrix.get(this.remaining[i], this.remaining[j]);
+			}
+		}
+		int full = (1 << m) - 1;
+		double[] cost = new double[(full + 1) * m];
+		Arrays.fill(cost, Double.MAX_VALUE);
+		for(int j = 0; j < m; j++){
+			cost[(1 << j) * m + j] = matrix.get(last, this.remaining[j]);
+		}
+		for(int subset = 1; subset < full; subset++){
+			int row = subset * m;
+			for(int j = 0; j < m; j++){
+				double pathCost = cost[row + j];
+				if((subset & (1 << j)) == 0 || pathCost == Double.MAX_VALUE){
+					continue;
+				}
+				int edgeRow = j * m;
+				// Extend the path with every city that is not in the subset yet.
+				for(int outside = full & ~subset; outside != 0; outside &= outside - 1){
+					int i = Integer.numberOfTrailingZeros(outside);
+					int next = (subset | (1 << i)) * m + i;
+					double nextCost = pathCost + edges[edgeRow + i];
+					if(nextCost < cost[next]){
+						cost[next] = nextCost;
+					}
+				}
+			}
+		}
+
+		int end = 0;
+		double minCost = Double.MAX_VALUE;
+		for(int j = 0; j < m; j++){
+			double tourCost = cost[full * m + j] + matrix.get(this.remaining[j], this.prefix[0]);
+			if(tourCost < minCost){
+				minCost = tourCost;
+				end = j;
+			}
+		}
+
+		// Walk back from the last city of the tour to the prefix.
+		int subset = full;
+		for(int position = tour.length - 1; ; position--){
+			tour[position] = this.remaining[end];
+			int previous = subset & ~(1 << end);
+			if(previous == 0){
+				break;
+			}
+			double pathCost = cost[subset * m + end];
+			for(int candidates = previous; candidates != 0; candidates &= candidates - 1){
+				int i = Integer.numberOfTrailingZeros(candidates);
+				if(cost[previous * m + i] + edges[i * m + end] == pathCost){
+					end = i;
+					break;
+				}
+			}
+			subset = previous;
+		}
+		return prefixCost + minCost;
+	}
+
+	/**
+	 * The successor picks the minimal tour among the ones found by its sub-tasks.
+	 * @return a map of the minimal tour and its cost
+	 * @see api.Task#combine(java.util.List)
+	 */
+	@Override
+	public Map<int[], Double> combine(List<Map<int[], Double>> inputs) {
+		int[] minTour = null;
+		double minDistance = Double.MAX_VALUE;
+		for(Map<int[], Double> minTourMap : inputs){
+			for(Entry<int[], Double> entry : minTourMap.entrySet()){
+				if(entry.getValue() < minDistance){
+					minDistance = entry.getValue();
+					minTour = entry.getKey();
+				}
+			}
+		}
+		Map<int[], Double> map = new HashMap<int[], Double>(1);
+		map.put(minTour, minDistance);
+		return map;
+	}
+
+	/**
+	 * Picking the minimal tour among the few found by the sub-tasks is cheaper than shipping them to a Computer.
+	 * @see api.Task#isCombineCheap()
+	 */
+	@Override
+	public boolean isCombineCheap() {
+		return true;
+	}
+
+	/* (non-Javadoc)
+	 * @see api.Task#isBaseCondition()
+	 */
+	@Override
+	public boolean isBaseCondition() {
+		return this.level >= Constants.HELDKARP_BASE_LEVEL || this.remaining.length <= 1;
+	}
+
+	/**
+	 * The cost of a task is the number of base-level tasks below it times the m * m * 2^m steps of the dynamic program of each, where m is the number of cities they leave to it.
+	 * @see api.Task#getCostEstimate()
+	 */
+	@Override
+	public long getCostEstimate() {
+		if(this.taskType == Constants.SUCCESSOR_TASK){
+			return this.inputList.length;
+		}
+		int m = this.remaining.length;
+		double leaves = 1;
+		for(int l = this.level; l < Constants.HELDKARP_BASE_LEVEL && m > 1; l++){
+			leaves *= m--;
+		}
+		double cost = leaves * m * m * Math.pow(2, m);
+		return cost >= Long.MAX_VALUE ? Long.MAX_VALUE : (long) cost;
+	}
+
+	/**
+	 * Each task is split into one task per remaining city, which that task appends to the prefix.
+	 * @see api.Task#splitTask()
+	 */
+	@Override
+	public List<Task<Map<int[], Double>>> splitTask() {
+		List<Task<Map<int[], Double>>> tasks = new ArrayList<Task<Map<int[], Double>>>(this.remaining.length);
+		for(int i = 0; i < this.remaining.length; i++){
+			int[] prefix = Arrays.copyOf(this.prefix, this.prefix.length + 1);
+			prefix[this.prefix.length] = this.remaining[i];
+			int[] remaining = new int[this.remaining.length - 1];
+			for(int j = 0, k = 0; j < this.remaining.length; j++){
+				if(j != i){
+					remaining[k++] = this.remaining[j];
+				}
+			}
+			Task<Map<int[], Double>> task = new HeldKarpTspTask(this.distancesKey, prefix, remaining, this.level + 1);
+			task.setArgNo(i);
+			tasks.add(task);
+		}
+		return tasks;
+	}
+
+	/* (non-Javadoc)
+	 * @see api.Task#createSuccessorTask()
+	 */
+	@Override
+	public Task<Map<int[], Double>> createSuccessorTask() {
+		Task<Map<int[], Double>> successorTask = new HeldKarpTspTask(Constants.SUCCESSOR_TASK);
+		Object[] inputList = new Object[this.remaining.length];
+		successorTask.setInputList(inputList);
+
+		// Successor's successor should be the current task's successor.
+		successorTask.setSuccessorTaskId(this.getSuccessorTaskId());
+		successorTask.setJoinCounter(inputList.length);
+
+		return successorTask;
+	}
+
+	/**
+	 * Gets the distances between the cities, looking them up in the shared data cache the first time.
+	 *
+	 * @return the distance matrix
+	 */
+	private DistanceMatrix getDistanceMatrix(){
+		if(this.distances == null){
+			this.distances = SharedData.get(this.distancesKey);
+		}
+		return this.distances;
+	}
+	
+	/**
+	 * Writes the fields of the task in a compact form, instead of Java serialization.
+	 * @see java.io.Externalizable#writeExternal(java.io.ObjectOutput)
+	 */
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		writeTask(out);
+		Codecs.writeString(out, this.distancesKey);
+		Codecs.writeIntArray(out, this.prefix);
+		Codecs.writeIntArray(out, this.remaining);
+		out.writeInt(this.level);
+	}
+	
+	/* (non-Javadoc)
+	 * @see java.io.Externalizable#readExternal(java.io.ObjectInput)
+	 */
+	@Override
+	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+		readTask(in);
+		this.distancesKey = Codecs.readString(in);
+		this.prefix = Codecs.readIntArray(in);
+		this.remaining = Codecs.readIntArray(in);
+		this.level = in.readInt();
+	}
+}
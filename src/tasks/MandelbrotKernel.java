@@ -0,0 +1,22 @@
+/*
+ * @author gautham
+ */
+package tasks;
+
+/**
+ * The inner loop of the Mandelbrot set: computes the k values of a run of pixels that share the real part of their representative point.
+ * Every implementation must produce exactly the k values of the scalar loop, so that the choice of kernel never changes an image.
+ */
+public interface MandelbrotKernel {
+
+	/**
+	 * Computes the k values of a run of pixels.
+	 *
+	 * @param cReal the real part shared by the representative points of the pixels
+	 * @param cImag the imaginary parts of the representative points of the pixels
+	 * @param iterationLimit the iteration limit
+	 * @param counts the array that receives the k values
+	 * @param offset the index in counts of the k value of the first pixel
+	 */
+	void computeRow(double cReal, double[] cImag, int iterationLimit, int[] counts, int offset);
+}
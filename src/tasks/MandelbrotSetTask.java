@@ -3,25 +3,37 @@
  */
 package tasks;
 
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-import java.util.UUID;
 
 import utils.Constants;
+import api.Codecs;
 import api.Result;
 import api.Task;
+import api.TaskIdGenerator;
 
 /**
  * This class represents a unit of work that helps to produce a visualization of the some part of the Mandelbrot set which is probably one of the most well known fractals, and probably one of the most widely implemented fractal in fractal plotting programs.
    The MandelbrotSet job is decomposed into 'n' number of tasks, with each task taking care of a fixed number of rows as defined by the constant NUM_ROWS_PER_TASK
  */
-public final class MandelbrotSetTask extends Task<Map<Integer, int[]>>{
+public final class MandelbrotSetTask extends Task<MandelbrotTile> implements Externalizable{
 
 	/** The Constant serialVersionUID. */
 	private static final long serialVersionUID = 1L;
 
+	static {
+		MandelbrotTile.registerCodec();
+	}
+	
+	/** The kernel that computes the rows of the leaves: the vectorized one if the Vector API is available, the scalar one otherwise. */
+	private static final MandelbrotKernel KERNEL = loadKernel();
+	
 	/** The left corner coordinates of the square in the complex plane. */
 	private double[] leftCornerCoordinates;
 	
@@ -40,6 +52,36 @@ public final class MandelbrotSetTask extends Task<Map<Integer, int[]>>{
 	/** The row until which this task does its computation. */
 	private int endRow;
 	
+	/** The column from which this task starts its computation. */
+	private int startColumn;
+	
+	/** The column until which this task does its computation. */
+	private int endColumn;
+	
+	/** How the image is decomposed: one of Constants.MANDELBROTSET_MODE_ROWS, MANDELBROTSET_MODE_ADAPTIVE and MANDELBROTSET_MODE_TILED. */
+	private int mode;
+	
+	/** In tiled mode, the estimated cost up to which a tile is not split any further; 0 until the root task has probed the whole image. */
+	private long leafCost;
+	
+	/** The key of the stream to which the tiles are handed as partial results, or null if they are assembled into a single tile. */
+	private String streamKey;
+	
+	/** The k value shared by all the pixels on the border of the rectangle, -1 if they differ, or 0 if the border has not been computed yet. */
+	private transient int borderK;
+	
+	/** The cost of the rectangle estimated by the low-resolution probe, or 0 if it has not been probed yet. A tiled task hands its sub-tasks estimates taken from its own probe. */
+	private long probedCost;
+	
+	/** The k values sampled by the probe, row by row, or null if this task has not probed its rectangle itself. */
+	private transient int[] probeSamples;
+	
+	/**
+	 * Instantiates a new Mandelbrot set task whose fields are then read by readExternal.
+	 */
+	public MandelbrotSetTask(){
+	}
+	
 	/**
 	 * Instantiates a new Mandelbrot set task.
 	 *
@@ -52,13 +94,37 @@ public final class MandelbrotSetTask extends Task<Map<Integer, int[]>>{
 	 */
 	
 	public MandelbrotSetTask(double[] leftCornerCoordinates, double edgeLength, int numSquares, int iterationLimit, int startRow, int endRow){
-		super(UUID.randomUUID(), Constants.CHILD_TASK);
+		this(leftCornerCoordinates, edgeLength, numSquares, iterationLimit, startRow, endRow, 0, numSquares - 1, Constants.MANDELBROTSET_MODE_ROWS);
+	}
+	
+	/**
+	 * Instantiates a new Mandelbrot set task for a rectangle of pixels.
+	 * In adaptive mode, a task whose border has a single k value fills its rectangle with that value without computing the interior.
+	 * Otherwise it splits the rectangle into quadrants, until they are no larger than Constants.MANDELBROTSET_MIN_TILE_SIZE on either side.
+	 * In tiled mode, a task splits into quadrants until a low-resolution probe predicts that a quadrant costs no more than 1/Constants.MANDELBROTSET_TARGET_LEAVES
+	 * of the whole image, so that the leaves take roughly equal time however the iterations are distributed over the image.
+	 *
+	 * @param leftCornerCoordinates the left corner coordinates of the square in the complex plane
+	 * @param edgeLength the edge length of the square in the complex plane
+	 * @param numSquares the number denoting the number of pixels (n x n squares) that represent the square region in the complex plane
+	 * @param iterationLimit the iteration limit
+	 * @param startRow the start row
+	 * @param endRow the end row
+	 * @param startColumn the start column
+	 * @param endColumn the end column
+	 * @param mode one of Constants.MANDELBROTSET_MODE_ROWS, MANDELBROTSET_MODE_ADAPTIVE and MANDELBROTSET_MODE_TILED
+	 */
+	public MandelbrotSetTask(double[] leftCornerCoordinates, double edgeLength, int numSquares, int iterationLimit, int startRow, int endRow, int startColumn, int endColumn, int mode){
+		super(TaskIdGenerator.next(), Constants.CHILD_TASK);
 		this.leftCornerCoordinates = leftCornerCoordinates;
 		this.edgeLength = edgeLength;
 		this.numSquares = numSquares;
 		this.iterationLimit = iterationLimit;
 		this.startRow = startRow;
 		this.endRow = endRow;		
+		this.startColumn = startColumn;
+		this.endColumn = endColumn;
+		this.mode = mode;
 	}
 	
 	/**
@@ -67,7 +133,7 @@ public final class MandelbrotSetTask extends Task<Map<Integer, int[]>>{
 	 * @param taskType the task type
 	 */
 	public MandelbrotSetTask(int taskType) {
-		super(UUID.randomUUID(), taskType);
+		super(TaskIdGenerator.next(), taskType);
 	}
 	/**
 	 * This method uses a simple algorithm for drawing a picture of the Mandelbrot set. 
@@ -75,39 +141,72 @@ public final class MandelbrotSetTask extends Task<Map<Integer, int[]>>{
      * To color any such pixel, let c be the lower leftmost point of that pixel. We now iterate till we reach the iteration limit, checking at each step whether the orbit point has modulus larger than 2.
        When this is the case, we know that  does not belong to the Mandelbrot set, and we color our pixel according to the number of iterations used to find out. Otherwise, we keep iterating up to the iteration limit, after which we decide that our parameter is "probably" in the Mandelbrot set and color the pixel black.
 	 * 
-	 * @return count array, where count[i] = k, where k defines whether the representative point in the region is part of the Mandelbrot set or not.
-	 * The array contains the k values of multiple rows which correspond to the number of rows that each task works upon.
+	 * @return a tile of the rectangle of this task, where k defines whether the representative point in the region is part of the Mandelbrot set or not.
 	 * 
 	 */
 	@Override
-	public Result<Map<Integer, int[]>> execute() {
-		Result<Map<Integer, int[]>> result = new Result<Map<Integer, int[]>>();
+	public Result<MandelbrotTile> execute() {
+		Result<MandelbrotTile> result = new Result<MandelbrotTile>();
 		
 		if(this.getTaskType() == Constants.CHILD_TASK){
-			Map<Integer, int[]> map = new HashMap<Integer, int[]>(Constants.MANDELBROTSET_NUM_ROWS_PER_TASK);						
-			for (int i = 0; i < Constants.MANDELBROTSET_NUM_ROWS_PER_TASK; i++) {
-				int[] count = new int[numSquares];				
-				for (int j = 0; j < numSquares; j++) {
-					// System.out.println("{" + rowNum + ", " + j + "}");
-					
-					int k = getK(this.startRow + i, j);
-					count[j] = k;
+			int numRows = this.endRow - this.startRow + 1;
+			int numColumns = this.endColumn - this.startColumn + 1;
+			int[] count = new int[numRows * numColumns];
+			if(this.mode == Constants.MANDELBROTSET_MODE_ADAPTIVE && getBorderK() > 0){
+				// The border encloses a region of a single k value.
+				Arrays.fill(count, getBorderK());
+			}
+			else{
+				double[] c_imag = new double[numColumns];
+				for (int j = 0; j < numColumns; j++) {
+					c_imag[j] = getImaginary(this.startColumn + j);
+				}
+				for (int i = 0; i < numRows; i++) {
+					KERNEL.computeRow(getReal(this.startRow + i), c_imag, iterationLimit, count, i * numColumns);
 				}
-				map.put(this.startRow + i, count);
 			}
-			result.setTaskReturnValue(map);			
+			result.setTaskReturnValue(new MandelbrotTile(this.startRow, numRows, this.startColumn, numColumns, count));			
 		}
 		else{
-			Map<Integer, int[]> map = new HashMap<Integer, int[]>(this.endRow - this.startRow + 1);
-			for(Task<Map<Integer, int[]>> task : this.getInputList()){
-				map.putAll(task.getResult().getTaskReturnValue());				
-			}
-			result.setTaskReturnValue(map);
+			result.setTaskReturnValue(combine(this.getInputs()));
 		}
+		result.setStreamKey(this.streamKey);
 		this.setResult(result);
 		return result;
 	}
 	
+	/**
+	 * The successor assembles the tiles of its sub-tasks, which are bands of rows or quadrants of its rectangle.
+	 * When the tiles are streamed, the Space has already handed them to the Client and the inputs of a successor executed there are empty;
+	 * the successor then produces an empty result as well, which only signals that its part of the image is complete.
+	 * @see api.Task#combine(java.util.List)
+	 */
+	@Override
+	public MandelbrotTile combine(List<MandelbrotTile> inputs) {
+		if(inputs.contains(null)){
+			return null;
+		}
+		return MandelbrotTile.assemble(inputs);
+	}
+	
+	/**
+	 * Streams the tiles of this task and of its sub-tasks to the Client as partial results, under the given key.
+	 *
+	 * @param streamKey the key of the stream
+	 */
+	public void setStreamKey(String streamKey) {
+		this.streamKey = streamKey;
+	}
+	
+	/**
+	 * Assembling the tiles is a handful of array copies, which is cheaper than shipping them to a Computer and back.
+	 * @see api.Task#isCombineCheap()
+	 */
+	@Override
+	public boolean isCombineCheap() {
+		return true;
+	}
+	
 	/**
 	 * Gets the value of k for the representative point in the region[i][j].
 	 *
@@ -116,19 +215,199 @@ public final class MandelbrotSetTask extends Task<Map<Integer, int[]>>{
 	 * @return k
 	 */
 	private int getK(int i, int j){
-		int k = 1;
-		
-		double c_real = leftCornerCoordinates[0] + (i * edgeLength / numSquares);
-		double c_imag = leftCornerCoordinates[1] + (j * edgeLength / numSquares);		
-		double real = 0, imag = 0;
-		
-		while( (real * real + imag * imag < 4) && k < iterationLimit){		
-			double temp = real * real - imag * imag + c_real;
-			imag = 2 * real * imag + c_imag;
-			real = temp;
-			k++;
+		return ScalarMandelbrotKernel.getK(getReal(i), getImaginary(j), iterationLimit);
+	}
+	
+	/**
+	 * Gets the real part of the representative points of the pixels in row i.
+	 *
+	 * @param i the row
+	 * @return the real part
+	 */
+	private double getReal(int i){
+		return leftCornerCoordinates[0] + (i * edgeLength / numSquares);
+	}
+	
+	/**
+	 * Gets the imaginary part of the representative points of the pixels in column j.
+	 *
+	 * @param j the column
+	 * @return the imaginary part
+	 */
+	private double getImaginary(int j){
+		return leftCornerCoordinates[1] + (j * edgeLength / numSquares);
+	}
+	
+	/**
+	 * Loads the vectorized kernel, unless the system property mandelbrot.scalar is set to true.
+	 * It falls back to the scalar kernel if the jdk.incubator.vector module is not available or the CPU has no wide double vectors;
+	 * any other failure to construct the vectorized kernel is reported before falling back.
+	 *
+	 * @return the kernel
+	 */
+	private static MandelbrotKernel loadKernel(){
+		if(!Boolean.getBoolean("mandelbrot.scalar")){
+			try{
+				return (MandelbrotKernel) Class.forName("tasks.VectorMandelbrotKernel").getDeclaredConstructor().newInstance();
+			}
+			catch(ClassNotFoundException e){
+				// The kernel was not built, for want of the module.
+			}
+			catch(NoClassDefFoundError e){
+				// The module is not available.
+			}
+			catch(InvocationTargetException e){
+				// UnsupportedOperationException means no vectors wider than a double; anything else is a real failure of the kernel.
+				if(!(e.getCause() instanceof UnsupportedOperationException)){
+					e.printStackTrace();
+				}
+			}
+			catch(ReflectiveOperationException e){
+				e.printStackTrace();
+			}
 		}
-		return k;
+		return new ScalarMandelbrotKernel();
+	}
+	
+	/**
+	 * Gets the k value shared by all the pixels on the border of the rectangle, computing the border the first time.
+	 * The computation stops at the first pixel that differs.
+	 *
+	 * @return the k value of the border, or -1 if the pixels on the border differ
+	 */
+	private int getBorderK(){
+		if(this.borderK == 0){
+			int k = getK(this.startRow, this.startColumn);
+			boolean uniform = true;
+			for(int j = this.startColumn; uniform && j <= this.endColumn; j++){
+				uniform = getK(this.startRow, j) == k && getK(this.endRow, j) == k;
+			}
+			for(int i = this.startRow + 1; uniform && i < this.endRow; i++){
+				uniform = getK(i, this.startColumn) == k && getK(i, this.endColumn) == k;
+			}
+			this.borderK = uniform ? k : -1;
+		}
+		return this.borderK;
+	}
+	
+	/**
+	 * Gets the cost of the rectangle, estimated from the k values of a grid of Constants.MANDELBROTSET_PROBE_SIZE x MANDELBROTSET_PROBE_SIZE pixels spread over it,
+	 * unless the parent task has already estimated it from the part of its own grid that falls inside the rectangle.
+	 *
+	 * @return the estimated number of iterations needed to compute the rectangle
+	 */
+	private long getProbedCost(){
+		if(this.probedCost == 0){
+			int[] samples = probe();
+			long iterations = 0;
+			for(int k : samples){
+				iterations += k;
+			}
+			this.probedCost = Math.max(1, iterations * (this.endRow - this.startRow + 1) * (this.endColumn - this.startColumn + 1) / samples.length);
+		}
+		return this.probedCost;
+	}
+	
+	/**
+	 * Samples the k values of a grid of pixels spread evenly over the rectangle, the first time it is called.
+	 *
+	 * @return the k values, row by row; the pixel of sample (i, j) is at getProbeRow(i), getProbeColumn(j)
+	 */
+	private int[] probe(){
+		if(this.probeSamples == null){
+			int rowSamples = getNumProbes(this.endRow - this.startRow + 1);
+			int columnSamples = getNumProbes(this.endColumn - this.startColumn + 1);
+			int[] samples = new int[rowSamples * columnSamples];
+			for(int i = 0; i < rowSamples; i++){
+				for(int j = 0; j < columnSamples; j++){
+					samples[i * columnSamples + j] = getK(getProbeRow(i), getProbeColumn(j));
+				}
+			}
+			this.probeSamples = samples;
+		}
+		return this.probeSamples;
+	}
+	
+	/**
+	 * Gets the number of samples the probe takes along a side of the rectangle.
+	 *
+	 * @param length the length of the side
+	 * @return the number of samples
+	 */
+	private static int getNumProbes(int length){
+		return Math.min(length, Constants.MANDELBROTSET_PROBE_SIZE);
+	}
+	
+	/**
+	 * Gets the row of the ith row of samples: the middle of the ith of the equal bands the rows are divided into.
+	 *
+	 * @param i the index of the sample
+	 * @return the row
+	 */
+	private int getProbeRow(int i){
+		int numRows = this.endRow - this.startRow + 1;
+		return this.startRow + (int) ((2L * i + 1) * numRows / (2 * getNumProbes(numRows)));
+	}
+	
+	/**
+	 * Gets the column of the jth column of samples.
+	 *
+	 * @param j the index of the sample
+	 * @return the column
+	 */
+	private int getProbeColumn(int j){
+		int numColumns = this.endColumn - this.startColumn + 1;
+		return this.startColumn + (int) ((2L * j + 1) * numColumns / (2 * getNumProbes(numColumns)));
+	}
+	
+	/**
+	 * Estimates the cost of a sub-rectangle from the samples of this task's probe that fall inside it.
+	 *
+	 * @param task the task of the sub-rectangle
+	 * @return the estimated cost, or 0 if no sample falls inside it
+	 */
+	private long estimateCost(MandelbrotSetTask task){
+		int[] samples = probe();
+		int columnSamples = getNumProbes(this.endColumn - this.startColumn + 1);
+		long iterations = 0;
+		int count = 0;
+		for(int i = 0; i < samples.length / columnSamples; i++){
+			int row = getProbeRow(i);
+			if(row < task.startRow || row > task.endRow){
+				continue;
+			}
+			for(int j = 0; j < columnSamples; j++){
+				int column = getProbeColumn(j);
+				if(column >= task.startColumn && column <= task.endColumn){
+					iterations += samples[i * columnSamples + j];
+					count++;
+				}
+			}
+		}
+		return count == 0 ? 0 : Math.max(1, iterations * (task.endRow - task.startRow + 1) * (task.endColumn - task.startColumn + 1) / count);
+	}
+	
+	/**
+	 * Gets the estimated cost up to which a tile is not split any further. The root task derives it from its own probe of the whole image.
+	 *
+	 * @return the leaf cost
+	 */
+	private long getLeafCost(){
+		if(this.leafCost == 0){
+			this.leafCost = Math.max(1, getProbedCost() / Constants.MANDELBROTSET_TARGET_LEAVES);
+		}
+		return this.leafCost;
+	}
+	
+	/**
+	 * Gets the number of rectangles an adaptive or tiled task is split into: each side longer than Constants.MANDELBROTSET_MIN_TILE_SIZE is halved.
+	 *
+	 * @return 1, 2 or 4
+	 */
+	private int getNumSubRectangles(){
+		int rowParts = (this.endRow - this.startRow + 1) > Constants.MANDELBROTSET_MIN_TILE_SIZE ? 2 : 1;
+		int columnParts = (this.endColumn - this.startColumn + 1) > Constants.MANDELBROTSET_MIN_TILE_SIZE ? 2 : 1;
+		return rowParts * columnParts;
 	}
 		
 	/**
@@ -152,22 +431,52 @@ public final class MandelbrotSetTask extends Task<Map<Integer, int[]>>{
 	 */
 	@Override
 	public boolean isBaseCondition() {
+		if(this.mode == Constants.MANDELBROTSET_MODE_ADAPTIVE){
+			return getNumSubRectangles() == 1 || getBorderK() > 0;
+		}
+		if(this.mode == Constants.MANDELBROTSET_MODE_TILED){
+			return getNumSubRectangles() == 1 || getProbedCost() <= getLeafCost();
+		}
 		return (this.endRow - this.startRow + 1) == Constants.MANDELBROTSET_NUM_ROWS_PER_TASK;
 	}
 	
 	/**
-	 * Each task is split up to a level where there are Constants.MANDELBROTSET_NUM_ROWS_PER_TASK for each task to work upon.
+	 * The cost of a task is the number of pixels it covers, or in tiled mode the iterations predicted by its probe; a successor only copies the rows of its inputs.
+	 * An adaptive task whose border has a single k value costs nothing beyond that border, which has already been computed, so it is not used for calibration.
+	 * @see api.Task#getCostEstimate()
+	 */
+	@Override
+	public long getCostEstimate() {
+		if(this.getTaskType() == Constants.SUCCESSOR_TASK){
+			return 1;
+		}
+		if(this.mode == Constants.MANDELBROTSET_MODE_ADAPTIVE && this.borderK > 0){
+			return 0;
+		}
+		if(this.mode == Constants.MANDELBROTSET_MODE_TILED){
+			return getProbedCost();
+		}
+		return (long) (this.endRow - this.startRow + 1) * (this.endColumn - this.startColumn + 1);
+	}
+	
+	/**
+	 * Each task is split up to a level where there are Constants.MANDELBROTSET_NUM_ROWS_PER_TASK for each task to work upon; an adaptive or tiled task is split into quadrants instead.
 	 * @see api.Task#splitTask()
 	 */
 	@Override
-	public List<Task<Map<Integer, int[]>>> splitTask() {
-		List<Task<Map<Integer, int[]>>> tasks = new ArrayList<Task<Map<Integer, int[]>>>(2);
+	public List<Task<MandelbrotTile>> splitTask() {
+		if(this.mode != Constants.MANDELBROTSET_MODE_ROWS){
+			return splitRectangle();
+		}
+		List<Task<MandelbrotTile>> tasks = new ArrayList<Task<MandelbrotTile>>(2);
 		
-		Task<Map<Integer, int[]>> task1 = new MandelbrotSetTask(leftCornerCoordinates, edgeLength, numSquares, iterationLimit, startRow, startRow + (endRow - startRow) / 2);
+		MandelbrotSetTask task1 = new MandelbrotSetTask(leftCornerCoordinates, edgeLength, numSquares, iterationLimit, startRow, startRow + (endRow - startRow) / 2);
 		task1.setArgNo(0);
+		task1.streamKey = this.streamKey;
 		
-		Task<Map<Integer, int[]>> task2 = new MandelbrotSetTask(leftCornerCoordinates, edgeLength, numSquares, iterationLimit, startRow + (endRow - startRow) / 2 + 1, endRow);
+		MandelbrotSetTask task2 = new MandelbrotSetTask(leftCornerCoordinates, edgeLength, numSquares, iterationLimit, startRow + (endRow - startRow) / 2 + 1, endRow);
 		task2.setArgNo(1);
+		task2.streamKey = this.streamKey;
 		
 		tasks.add(task1);
 		tasks.add(task2);
@@ -175,17 +484,47 @@ public final class MandelbrotSetTask extends Task<Map<Integer, int[]>>{
 		return tasks;
 	}
 	
+	/**
+	 * Splits the rectangle of an adaptive or tiled task into quadrants, or into halves if one of its sides is too short to be split.
+	 *
+	 * @return the sub-tasks
+	 */
+	private List<Task<MandelbrotTile>> splitRectangle() {
+		int rowMid = (this.endRow - this.startRow + 1) > Constants.MANDELBROTSET_MIN_TILE_SIZE ? this.startRow + (this.endRow - this.startRow) / 2 : this.endRow;
+		int columnMid = (this.endColumn - this.startColumn + 1) > Constants.MANDELBROTSET_MIN_TILE_SIZE ? this.startColumn + (this.endColumn - this.startColumn) / 2 : this.endColumn;
+		int[][] rowRanges = rowMid < this.endRow ? new int[][] {{this.startRow, rowMid}, {rowMid + 1, this.endRow}} : new int[][] {{this.startRow, this.endRow}};
+		int[][] columnRanges = columnMid < this.endColumn ? new int[][] {{this.startColumn, columnMid}, {columnMid + 1, this.endColumn}} : new int[][] {{this.startColumn, this.endColumn}};
+		
+		List<Task<MandelbrotTile>> tasks = new ArrayList<Task<MandelbrotTile>>(4);
+		long childLeafCost = this.mode == Constants.MANDELBROTSET_MODE_TILED ? getLeafCost() : 0;
+		for(int[] rows : rowRanges){
+			for(int[] columns : columnRanges){
+				MandelbrotSetTask task = new MandelbrotSetTask(leftCornerCoordinates, edgeLength, numSquares, iterationLimit, rows[0], rows[1], columns[0], columns[1], this.mode);
+				task.leafCost = childLeafCost;
+				task.streamKey = this.streamKey;
+				if(this.mode == Constants.MANDELBROTSET_MODE_TILED){
+					// A sub-task probes its rectangle itself only if it needs to split it in turn.
+					task.probedCost = estimateCost(task);
+				}
+				task.setArgNo(tasks.size());
+				tasks.add(task);
+			}
+		}
+		return tasks;
+	}
+	
 	/* (non-Javadoc)
 	 * @see api.Task#createSuccessorTask()
 	 */
 	@Override
-	public Task<Map<Integer, int[]>> createSuccessorTask() {
-		Task<Map<Integer, int[]>> successorTask = new MandelbrotSetTask(Constants.SUCCESSOR_TASK);
-		Task[] inputList = new Task[2];
+	public Task<MandelbrotTile> createSuccessorTask() {
+		MandelbrotSetTask successorTask = new MandelbrotSetTask(Constants.SUCCESSOR_TASK);
+		successorTask.streamKey = this.streamKey;
+		Object[] inputList = new Object[this.mode != Constants.MANDELBROTSET_MODE_ROWS ? getNumSubRectangles() : 2];
 		successorTask.setInputList(inputList);
 		
 		// Successor's successor should be the current task's successor.
-		successorTask.setSuccessorTaskId((Object)this.getSuccessorTaskId());
+		successorTask.setSuccessorTaskId(this.getSuccessorTaskId());
 		successorTask.setJoinCounter(inputList.length);		
 		
 		return successorTask;
@@ -206,4 +545,44 @@ public final class MandelbrotSetTask extends Task<Map<Integer, int[]>>{
 	}
 	*/
 	
+	/**
+	 * Writes the fields of the task in a compact form, instead of Java serialization.
+	 * @see java.io.Externalizable#writeExternal(java.io.ObjectOutput)
+	 */
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		writeTask(out);
+		Codecs.writeDoubleArray(out, this.leftCornerCoordinates);
+		out.writeDouble(this.edgeLength);
+		out.writeInt(this.numSquares);
+		out.writeInt(this.iterationLimit);
+		out.writeInt(this.startRow);
+		out.writeInt(this.endRow);
+		out.writeInt(this.startColumn);
+		out.writeInt(this.endColumn);
+		out.writeInt(this.mode);
+		out.writeLong(this.leafCost);
+		out.writeLong(this.probedCost);
+		Codecs.writeString(out, this.streamKey);
+	}
+	
+	/* (non-Javadoc)
+	 * @see java.io.Externalizable#readExternal(java.io.ObjectInput)
+	 */
+	@Override
+	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+		readTask(in);
+		this.leftCornerCoordinates = Codecs.readDoubleArray(in);
+		this.edgeLength = in.readDouble();
+		this.numSquares = in.readInt();
+		this.iterationLimit = in.readInt();
+		this.startRow = in.readInt();
+		this.endRow = in.readInt();
+		this.startColumn = in.readInt();
+		this.endColumn = in.readInt();
+		this.mode = in.readInt();
+		this.leafCost = in.readLong();
+		this.probedCost = in.readLong();
+		this.streamKey = Codecs.readString(in);
+	}
 }
@@ -0,0 +1,233 @@
+/*
+ * @author gautham
+ */
+package tasks;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutput;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.IntBuffer;
+import java.util.List;
+
+import api.Codec;
+import api.Codecs;
+
+/**
+ * The result of a MandelbrotSetTask: the k values of a rectangle of pixels, stored row by row in a single array.
+ * The k value of row startRow + r and column startColumn + c is at counts[r * width + c].
+ * Tiles travel with the codec registered under TYPE_ID, which copies the k values in bulk.
+ * A tile that has been read keeps its k values in a view of the bytes that were read, such as a frame of the NIO transport;
+ * copyTo and getCountBuffer read them from there, while getCounts has to copy them into an array.
+ */
+public final class MandelbrotTile implements Serializable {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The type id of the codec of tiles. */
+	public static final int TYPE_ID = Codecs.FIRST_APPLICATION_ID;
+	
+	/** The codec of tiles. */
+	private static final Codec<MandelbrotTile> CODEC = new Codec<MandelbrotTile>() {
+		@Override
+		public void write(ObjectOutput out, MandelbrotTile tile) throws IOException {
+			out.writeInt(tile.startRow);
+			out.writeInt(tile.numRows);
+			out.writeInt(tile.startColumn);
+			out.writeInt(tile.width);
+			Codecs.writeInts(out, tile.counts);
+		}
+
+		@Override
+		public MandelbrotTile read(ObjectInput in) throws IOException {
+			return new MandelbrotTile(in.readInt(), in.readInt(), in.readInt(), in.readInt(), Codecs.readInts(in));
+		}
+	};
+
+	/** The first row of the tile. */
+	private final int startRow;
+
+	/** The number of rows in the tile. */
+	private final int numRows;
+
+	/** The first column of the tile. */
+	private final int startColumn;
+
+	/** The number of columns in each row. */
+	private final int width;
+
+	/** The k values, row by row, from position 0 to the limit; written and read by the codec even when the tile is serialized without it. */
+	private transient IntBuffer counts;
+
+	/**
+	 * Instantiates a new Mandelbrot tile.
+	 *
+	 * @param startRow the first row of the tile
+	 * @param numRows the number of rows in the tile
+	 * @param startColumn the first column of the tile
+	 * @param width the number of columns in each row
+	 * @param counts the k values, row by row
+	 */
+	public MandelbrotTile(int startRow, int numRows, int startColumn, int width, int[] counts) {
+		this(startRow, numRows, startColumn, width, IntBuffer.wrap(counts));
+	}
+
+	/**
+	 * Instantiates a new Mandelbrot tile whose k values are held by a buffer, such as a view of the bytes that were read.
+	 *
+	 * @param startRow the first row of the tile
+	 * @param numRows the number of rows in the tile
+	 * @param startColumn the first column of the tile
+	 * @param width the number of columns in each row
+	 * @param counts the k values, row by row, from the position of the buffer to its limit
+	 */
+	public MandelbrotTile(int startRow, int numRows, int startColumn, int width, IntBuffer counts) {
+		this.startRow = startRow;
+		this.numRows = numRows;
+		this.startColumn = startColumn;
+		this.width = width;
+		this.counts = counts.slice();
+	}
+
+	/**
+	 * Registers the codec of tiles with Codecs, once per JVM; the tasks that produce tiles call it from their static initializers.
+	 */
+	public static void registerCodec() {
+		Codecs.register(TYPE_ID, MandelbrotTile.class, CODEC);
+	}
+
+	/**
+	 * Assembles tiles that together cover a rectangle, such as consecutive bands of rows or the quadrants of a rectangle, into a tile of the whole rectangle.
+	 *
+	 * @param tiles the tiles
+	 * @return a tile that covers the rectangle
+	 */
+	public static MandelbrotTile assemble(List<MandelbrotTile> tiles) {
+		int startRow = Integer.MAX_VALUE, endRow = Integer.MIN_VALUE;
+		int startColumn = Integer.MAX_VALUE, endColumn = Integer.MIN_VALUE;
+		for(MandelbrotTile tile : tiles){
+			startRow = Math.min(startRow, tile.startRow);
+			endRow = Math.max(endRow, tile.startRow + tile.numRows);
+			startColumn = Math.min(startColumn, tile.startColumn);
+			endColumn = Math.max(endColumn, tile.startColumn + tile.width);
+		}
+		int width = endColumn - startColumn;
+		int[] counts = new int[(endRow - startRow) * width];
+		for(MandelbrotTile tile : tiles){
+			tile.copyTo(counts, (tile.startRow - startRow) * width + (tile.startColumn - startColumn), width);
+		}
+		return new MandelbrotTile(startRow, endRow - startRow, startColumn, width, counts);
+	}
+	
+	/**
+	 * Copies the k values of the tile into place in a larger array, row by row, or with a single copy if the rows of the array are as wide as the tile.
+	 *
+	 * @param counts the array
+	 * @param offset the index in the array of the first k value of the tile
+	 * @param arrayWidth the number of columns in each row of the array
+	 */
+	public void copyTo(int[] counts, int offset, int arrayWidth) {
+		IntBuffer source = this.counts.duplicate();
+		if(this.width == arrayWidth){
+			source.get(counts, offset, source.remaining());
+			return;
+		}
+		for(int r = 0; r < this.numRows; r++){
+			source.get(counts, offset + r * arrayWidth, this.width);
+		}
+	}
+
+	/**
+	 * Writes the tile as its codec does.
+	 *
+	 * @param out the output
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		Codecs.writeInts(out, this.counts);
+	}
+
+	/**
+	 * Reads the tile as its codec does.
+	 *
+	 * @param in the input
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 * @throws ClassNotFoundException the class not found exception
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		this.counts = Codecs.readInts(in);
+	}
+
+	/**
+	 * Gets the first row of the tile.
+	 *
+	 * @return the start row
+	 */
+	public int getStartRow() {
+		return startRow;
+	}
+
+	/**
+	 * Gets the number of rows in the tile.
+	 *
+	 * @return the number of rows
+	 */
+	public int getNumRows() {
+		return numRows;
+	}
+
+	/**
+	 * Gets the first column of the tile.
+	 *
+	 * @return the start column
+	 */
+	public int getStartColumn() {
+		return startColumn;
+	}
+
+	/**
+	 * Gets the number of columns in each row.
+	 *
+	 * @return the width
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Gets the k values, row by row, as an array; unless the tile was built from an array, they are copied into a new one.
+	 *
+	 * @return the counts
+	 */
+	public int[] getCounts() {
+		if(counts.hasArray() && counts.arrayOffset() == 0 && counts.array().length == counts.limit()){
+			return counts.array();
+		}
+		int[] array = new int[counts.limit()];
+		counts.duplicate().get(array);
+		return array;
+	}
+
+	/**
+	 * Gets the k values, row by row, without copying them.
+	 *
+	 * @return a read-only view of the counts, from position 0
+	 */
+	public IntBuffer getCountBuffer() {
+		return counts.asReadOnlyBuffer();
+	}
+
+	/**
+	 * Gets the number of pixels in the tile.
+	 *
+	 * @return the number of pixels
+	 */
+	public int getNumPixels() {
+		return counts.limit();
+	}
+}
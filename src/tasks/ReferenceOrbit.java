@@ -0,0 +1,88 @@
+/*
+ * @author gautham
+ */
+package tasks;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Arrays;
+
+/**
+ * The orbit of a reference point of a deep zoom into the Mandelbrot set, computed once per job in arbitrary precision and shared with all of its tasks.
+ * Only the points of the orbit are kept, rounded to doubles: Z[0] = 0 and Z[n + 1] = Z[n]^2 + C, up to the point at which the orbit escapes or the iteration limit.
+ * The points themselves are of the order of 1 and lose nothing that matters by being rounded; it is C that needs the precision, to tell the pixels apart.
+ */
+public final class ReferenceOrbit implements Serializable {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The number of decimal digits computed beyond those needed to tell two adjacent pixels apart. */
+	private static final int GUARD_DIGITS = 20;
+
+	/** The real parts of the points of the orbit. */
+	private final double[] real;
+
+	/** The imaginary parts of the points of the orbit. */
+	private final double[] imag;
+
+	/**
+	 * Computes the orbit of a reference point.
+	 *
+	 * @param cReal the real part of the reference point
+	 * @param cImag the imaginary part of the reference point
+	 * @param pixelSize the distance between adjacent pixels, which determines the precision of the computation
+	 * @param iterationLimit the iteration limit
+	 */
+	public ReferenceOrbit(BigDecimal cReal, BigDecimal cImag, double pixelSize, int iterationLimit) {
+		MathContext context = new MathContext(GUARD_DIGITS + (int) Math.ceil(-Math.log10(pixelSize)));
+		BigDecimal four = BigDecimal.valueOf(4);
+		double[] real = new double[iterationLimit];
+		double[] imag = new double[iterationLimit];
+		BigDecimal zReal = BigDecimal.ZERO, zImag = BigDecimal.ZERO;
+		int length = 0;
+		while(length < iterationLimit){
+			real[length] = zReal.doubleValue();
+			imag[length] = zImag.doubleValue();
+			length++;
+			BigDecimal zReal2 = zReal.multiply(zReal, context);
+			BigDecimal zImag2 = zImag.multiply(zImag, context);
+			if(zReal2.add(zImag2, context).compareTo(four) >= 0){
+				break;
+			}
+			BigDecimal temp = zReal2.subtract(zImag2, context).add(cReal, context);
+			zImag = zReal.multiply(zImag, context).multiply(BigDecimal.valueOf(2), context).add(cImag, context);
+			zReal = temp;
+		}
+		this.real = Arrays.copyOf(real, length);
+		this.imag = Arrays.copyOf(imag, length);
+	}
+
+	/**
+	 * Gets the number of points of the orbit.
+	 *
+	 * @return the length
+	 */
+	public int getLength() {
+		return real.length;
+	}
+
+	/**
+	 * Gets the real parts of the points of the orbit.
+	 *
+	 * @return the real parts; must not be modified
+	 */
+	public double[] getReal() {
+		return real;
+	}
+
+	/**
+	 * Gets the imaginary parts of the points of the orbit.
+	 *
+	 * @return the imaginary parts; must not be modified
+	 */
+	public double[] getImag() {
+		return imag;
+	}
+}
@@ -0,0 +1,41 @@
+/*
+ * @author gautham
+ */
+package tasks;
+
+/**
+ * The plain Mandelbrot kernel, which iterates one pixel at a time. It runs on every JVM.
+ */
+public final class ScalarMandelbrotKernel implements MandelbrotKernel {
+
+	/* (non-Javadoc)
+	 * @see tasks.MandelbrotKernel#computeRow(double, double[], int, int[], int)
+	 */
+	@Override
+	public void computeRow(double cReal, double[] cImag, int iterationLimit, int[] counts, int offset) {
+		for(int j = 0; j < cImag.length; j++){
+			counts[offset + j] = getK(cReal, cImag[j], iterationLimit);
+		}
+	}
+
+	/**
+	 * Gets the value of k for a representative point: the number of iterations after which its orbit leaves the circle of radius 2, or the iteration limit.
+	 *
+	 * @param c_real the real part of the point
+	 * @param c_imag the imaginary part of the point
+	 * @param iterationLimit the iteration limit
+	 * @return k
+	 */
+	public static int getK(double c_real, double c_imag, int iterationLimit){
+		int k = 1;
+		double real = 0, imag = 0;
+
+		while( (real * real + imag * imag < 4) && k < iterationLimit){
+			double temp = real * real - imag * imag + c_real;
+			imag = 2 * real * imag + c_imag;
+			real = temp;
+			k++;
+		}
+		return k;
+	}
+}
@@ -0,0 +1,70 @@
+/*
+ * @author gautham
+ */
+package tasks;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * A Mandelbrot kernel that iterates as many pixels at once as the widest double vector of the CPU holds, with the incubating Vector API.
+ * A lane drops out of the active mask once its orbit has escaped, and the batch stops as soon as no lane is active.
+ * The lanes perform the operations of the scalar loop in the same order, without fused multiply-adds, so the k values are identical.
+ * The pixels left over after the last full batch of a row go through the scalar loop.
+ * This class needs the jdk.incubator.vector module (--add-modules jdk.incubator.vector); MandelbrotSetTask only loads it when it is available.
+ */
+public final class VectorMandelbrotKernel implements MandelbrotKernel {
+
+	/** The widest species of double vectors the CPU supports. */
+	private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+	/**
+	 * Instantiates a new vector Mandelbrot kernel.
+	 *
+	 * @throws UnsupportedOperationException if the CPU has no vectors of more than one double, in which case the scalar kernel is faster
+	 */
+	public VectorMandelbrotKernel() {
+		if(SPECIES.length() < 2){
+			throw new UnsupportedOperationException("No double vectors of more than one lane");
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see tasks.MandelbrotKernel#computeRow(double, double[], int, int[], int)
+	 */
+	@Override
+	public void computeRow(double cReal, double[] cImag, int iterationLimit, int[] counts, int offset) {
+		int lanes = SPECIES.length();
+		double[] laneCounts = new double[lanes];
+		DoubleVector cr = DoubleVector.broadcast(SPECIES, cReal);
+		DoubleVector zero = DoubleVector.zero(SPECIES);
+		int j = 0;
+		for(int bound = SPECIES.loopBound(cImag.length); j < bound; j += lanes){
+			DoubleVector ci = DoubleVector.fromArray(SPECIES, cImag, j);
+			DoubleVector real = zero, imag = zero;
+			DoubleVector k = DoubleVector.broadcast(SPECIES, 1);
+			VectorMask<Double> active = SPECIES.maskAll(true);
+			for(int iteration = 1; iteration < iterationLimit; iteration++){
+				DoubleVector real2 = real.mul(real);
+				DoubleVector imag2 = imag.mul(imag);
+				active = active.and(real2.add(imag2).compare(VectorOperators.LT, 4));
+				if(!active.anyTrue()){
+					break;
+				}
+				k = k.add(1, active);
+				DoubleVector temp = real2.sub(imag2).add(cr);
+				imag = real.mul(2).mul(imag).add(ci);
+				real = temp;
+			}
+			k.intoArray(laneCounts, 0);
+			for(int l = 0; l < lanes; l++){
+				counts[offset + j + l] = (int) laneCounts[l];
+			}
+		}
+		for(; j < cImag.length; j++){
+			counts[offset + j] = ScalarMandelbrotKernel.getK(cReal, cImag[j], iterationLimit);
+		}
+	}
+}
@@ -18,12 +18,63 @@ public class Constants {
 	public static final int MANDELBROTSET_NUM_ROWS_PER_TASK = 32;
 	
 	
+	/** The MandelbrotSet mode that splits the image into bands of MANDELBROTSET_NUM_ROWS_PER_TASK rows. */
+	public static final int MANDELBROTSET_MODE_ROWS = 0;
+	
+	/** The MandelbrotSet mode that subdivides the image into rectangles and fills those whose border has a single k value (Mariani-Silver). */
+	public static final int MANDELBROTSET_MODE_ADAPTIVE = 1;
+	
+	/** The MandelbrotSet mode that splits the image into square tiles until a low-resolution probe predicts that a tile costs no more than its share of the image. */
+	public static final int MANDELBROTSET_MODE_TILED = 2;
+	
+	/** The number of pixels along each side of the grid that a tiled MandelbrotSet task samples to estimate its cost. */
+	public static final int MANDELBROTSET_PROBE_SIZE = 8;
+	
+	/** The number of leaves of roughly equal cost into which a tiled MandelbrotSet job is split. */
+	public static final int MANDELBROTSET_TARGET_LEAVES = 256;
+	
+	/** The side, in pixels, below which an adaptive or tiled MandelbrotSet task computes its rectangle pixel by pixel instead of subdividing it further. */
+	public static final int MANDELBROTSET_MIN_TILE_SIZE = 16;
+	
+	
 	/** The Constant representing the base condition for the TSP task */
 	public static final int EUCLIDEANTSP_BASE_LEVEL = 2;
 	
 	
+	/** The level at which a Held-Karp TSP task stops fixing the next city of the tour and solves the rest with dynamic programming. */
+	public static final int HELDKARP_BASE_LEVEL = 1;
+	
+	
 	/** The Constant representing the base condition for the Fibonacci task */
 	public static final int FIBONACCI_BASE_CASE = 2;
 	
 	
+	/** The maximum number of tasks that may wait for a worker thread on a Computer before the Space is made to wait. */
+	public static final int COMPUTER_ADMISSION_LIMIT = 1024;
+	
+	
+	/** The time in milliseconds a ComputerProxy waits for a ready task in Space before trying to steal one for its Computer. */
+	public static final long STEAL_POLL_INTERVAL = 5;
+	
+	
+	/** A task whose sub-tree is predicted to run in less than this many RMI round trips is expanded and joined on the Computer; 0 disables local execution. */
+	public static final int LOCAL_EXECUTION_FACTOR = 10;
+	
+	
+	/** The number of splits and results after which a Computer sends its batch to the Space. */
+	public static final int BATCH_MAX_SIZE = 256;
+	
+	
+	/** The time in milliseconds the first entry of a batch may wait before the batch is sent to the Space. */
+	public static final long BATCH_LINGER = 2;
+	
+	
+	/** The port on which the Space accepts the Computers that use the NIO transport. */
+	public static final int NIO_PORT = 1100;
+	
+	
+	/** The largest frame, in bytes, that the NIO transport accepts; a longer length means the stream is corrupt. */
+	public static final int NIO_MAX_FRAME_SIZE = 512 * 1024 * 1024;
+	
+	
 }